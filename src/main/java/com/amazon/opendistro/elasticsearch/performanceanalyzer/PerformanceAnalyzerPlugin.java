@@ -22,6 +22,7 @@ import com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors.Admiss
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors.CacheConfigMetricsCollector;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors.CircuitBreakerCollector;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors.ClusterApplierServiceStatsCollector;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors.CollectorBudget;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors.DisksCollector;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors.ElectionTermCollector;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors.FaultDetectionMetricsCollector;
@@ -37,8 +38,10 @@ import com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors.NodeSt
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors.NodeStatsFixedShardsMetricsCollector;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors.OSMetricsCollector;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors.ScheduledMetricCollectorsExecutor;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors.SearchLatencyCollector;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors.ShardIndexingPressureMetricsCollector;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors.ShardStateCollector;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors.ShardStatsPool;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors.StatsCollector;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors.ThreadPoolMetricsCollector;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors.MasterClusterStateUpdateStatsCollector;
@@ -47,7 +50,9 @@ import com.amazon.opendistro.elasticsearch.performanceanalyzer.config.PluginSett
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.config.overrides.ConfigOverridesWrapper;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.config.setting.ClusterSettingsManager;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.config.setting.PerformanceAnalyzerClusterSettings;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.config.setting.PerformanceAnalyzerNodeSettings;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.config.setting.handler.ConfigOverridesClusterSettingHandler;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.config.setting.handler.CollectorIntervalsSettingHandler;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.config.setting.handler.NodeStatsSettingHandler;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.config.setting.handler.PerformanceAnalyzerClusterSettingHandler;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.http_action.config.PerformanceAnalyzerClusterConfigAction;
@@ -57,14 +62,19 @@ import com.amazon.opendistro.elasticsearch.performanceanalyzer.http_action.confi
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.http_action.whoami.TransportWhoAmIAction;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.http_action.whoami.WhoAmIAction;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.listener.PerformanceAnalyzerSearchListener;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.listener.SearchEventMode;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.MetricsConfiguration;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.metrics.ExceptionsAndErrors;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.rca.framework.metrics.WriterMetrics;
-import com.amazon.opendistro.elasticsearch.performanceanalyzer.reader_writer_shared.EventLog;
-import com.amazon.opendistro.elasticsearch.performanceanalyzer.reader_writer_shared.EventLogFileHandler;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.transport.PerformanceAnalyzerTransportInterceptor;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.util.ShardRegistry;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.util.Utils;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.writer.EventLogQueueProcessor;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.writer.EventLogWriter;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.writer.EventStagingQueue;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.writer.LoadSheddingPolicy;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.writer.PartitionedEventLogWriter;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.writer.TextEventLogWriter;
 import java.io.File;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
@@ -126,6 +136,7 @@ public final class PerformanceAnalyzerPlugin extends Plugin
     private static SecurityManager sm = null;
     private final PerformanceAnalyzerClusterSettingHandler perfAnalyzerClusterSettingHandler;
     private final NodeStatsSettingHandler nodeStatsSettingHandler;
+    private final CollectorIntervalsSettingHandler collectorIntervalsSettingHandler;
     private final ConfigOverridesClusterSettingHandler configOverridesClusterSettingHandler;
     private final ConfigOverridesWrapper configOverridesWrapper;
     private final PerformanceAnalyzerController performanceAnalyzerController;
@@ -160,6 +171,7 @@ public final class PerformanceAnalyzerPlugin extends Plugin
     }
 
     private final ScheduledMetricCollectorsExecutor scheduledMetricCollectorsExecutor;
+    private final EventLogQueueProcessor eventLogQueueProcessor;
 
     public PerformanceAnalyzerPlugin(final Settings settings, final java.nio.file.Path configPath) {
         OSMetricsGeneratorFactory.getInstance();
@@ -177,6 +189,8 @@ public final class PerformanceAnalyzerPlugin extends Plugin
         scheduledMetricCollectorsExecutor = new ScheduledMetricCollectorsExecutor();
         this.performanceAnalyzerController =
                 new PerformanceAnalyzerController(scheduledMetricCollectorsExecutor);
+        SearchEventMode searchEventMode = PerformanceAnalyzerNodeSettings.SEARCH_EVENT_MODE_SETTING.get(settings);
+        performanceAnalyzerController.updateSearchEventMode(searchEventMode);
 
         configOverridesWrapper = new ConfigOverridesWrapper();
         clusterSettingsManager =
@@ -184,8 +198,9 @@ public final class PerformanceAnalyzerPlugin extends Plugin
                         Arrays.asList(
                                 PerformanceAnalyzerClusterSettings.COMPOSITE_PA_SETTING,
                                 PerformanceAnalyzerClusterSettings.PA_NODE_STATS_SETTING),
-                        Collections.singletonList(
-                                PerformanceAnalyzerClusterSettings.CONFIG_OVERRIDES_SETTING));
+                        Arrays.asList(
+                                PerformanceAnalyzerClusterSettings.CONFIG_OVERRIDES_SETTING,
+                                PerformanceAnalyzerClusterSettings.COLLECTOR_INTERVALS_SETTING));
         configOverridesClusterSettingHandler =
                 new ConfigOverridesClusterSettingHandler(
                         configOverridesWrapper,
@@ -206,6 +221,16 @@ public final class PerformanceAnalyzerPlugin extends Plugin
         clusterSettingsManager.addSubscriberForIntSetting(
                 PerformanceAnalyzerClusterSettings.PA_NODE_STATS_SETTING, nodeStatsSettingHandler);
 
+        collectorIntervalsSettingHandler = new CollectorIntervalsSettingHandler(clusterSettingsManager);
+        clusterSettingsManager.addSubscriberForStringSetting(
+                PerformanceAnalyzerClusterSettings.COLLECTOR_INTERVALS_SETTING,
+                collectorIntervalsSettingHandler);
+
+        CollectorBudget.INSTANCE.configure(
+                PerformanceAnalyzerNodeSettings.COLLECTOR_CPU_BUDGET_SETTING.get(settings));
+        ShardStatsPool.INSTANCE.configure(
+                PerformanceAnalyzerNodeSettings.COLLECTOR_SHARD_STATS_THREADS_SETTING.get(settings),
+                PerformanceAnalyzerNodeSettings.COLLECTOR_SHARD_STATS_DEADLINE_SETTING.get(settings));
         scheduledMetricCollectorsExecutor.addScheduledMetricCollector(
                 new ThreadPoolMetricsCollector());
         scheduledMetricCollectorsExecutor.addScheduledMetricCollector(
@@ -220,7 +245,9 @@ public final class PerformanceAnalyzerPlugin extends Plugin
         scheduledMetricCollectorsExecutor.addScheduledMetricCollector(
                 new NodeDetailsCollector(configOverridesWrapper));
         scheduledMetricCollectorsExecutor.addScheduledMetricCollector(
-                new NodeStatsAllShardsMetricsCollector(performanceAnalyzerController));
+                new NodeStatsAllShardsMetricsCollector(
+                        performanceAnalyzerController,
+                        PerformanceAnalyzerNodeSettings.NODE_STATS_HEARTBEAT_RUNS_SETTING.get(settings)));
         scheduledMetricCollectorsExecutor.addScheduledMetricCollector(
                 new NodeStatsFixedShardsMetricsCollector(performanceAnalyzerController));
         scheduledMetricCollectorsExecutor.addScheduledMetricCollector(new MasterServiceMetrics());
@@ -247,6 +274,9 @@ public final class PerformanceAnalyzerPlugin extends Plugin
                         performanceAnalyzerController,configOverridesWrapper));
         scheduledMetricCollectorsExecutor.addScheduledMetricCollector(
                 new AdmissionControlMetricsCollector());
+        if (searchEventMode == SearchEventMode.HISTOGRAM) {
+            scheduledMetricCollectorsExecutor.addScheduledMetricCollector(new SearchLatencyCollector());
+        }
         try {
             Class.forName(ShardIndexingPressureMetricsCollector.SHARD_INDEXING_PRESSURE_CLASS_NAME);
             scheduledMetricCollectorsExecutor.addScheduledMetricCollector(
@@ -267,15 +297,34 @@ public final class PerformanceAnalyzerPlugin extends Plugin
         }
         scheduledMetricCollectorsExecutor.start();
 
-        EventLog eventLog = new EventLog();
-        EventLogFileHandler eventLogFileHandler =
-                new EventLogFileHandler(eventLog, PluginSettings.instance().getMetricsLocation());
-        new EventLogQueueProcessor(
-                        eventLogFileHandler,
-                        MetricsConfiguration.SAMPLING_INTERVAL,
-                        QUEUE_PURGE_INTERVAL_MS,
-                        performanceAnalyzerController)
-                .scheduleExecutor();
+        EventStagingQueue.INSTANCE.configure(
+                PerformanceAnalyzerNodeSettings.EVENT_STAGING_ENABLED_SETTING.get(settings),
+                PerformanceAnalyzerNodeSettings.EVENT_STAGING_RING_CAPACITY_SETTING.get(settings));
+        EventStagingQueue.INSTANCE.setLoadSheddingPolicy(
+                new LoadSheddingPolicy(
+                        PerformanceAnalyzerNodeSettings.LOAD_SHEDDING_QUEUE_CAPACITY_SETTING.get(settings),
+                        PerformanceAnalyzerNodeSettings.LOAD_SHEDDING_LOW_WATER_MARK_SETTING.get(settings),
+                        PerformanceAnalyzerNodeSettings.LOAD_SHEDDING_HIGH_WATER_MARK_SETTING.get(settings)));
+        String metricsLocation = PluginSettings.instance().getMetricsLocation();
+        int eventLogWriterThreads = PerformanceAnalyzerNodeSettings.EVENT_LOG_WRITER_THREADS_SETTING.get(settings);
+        EventLogWriter eventLogWriter = eventLogWriterThreads > 1
+                ? new PartitionedEventLogWriter(metricsLocation, eventLogWriterThreads, TextEventLogWriter::new)
+                : new TextEventLogWriter(metricsLocation);
+        eventLogQueueProcessor = new EventLogQueueProcessor(
+                eventLogWriter,
+                MetricsConfiguration.SAMPLING_INTERVAL,
+                QUEUE_PURGE_INTERVAL_MS,
+                performanceAnalyzerController,
+                PerformanceAnalyzerNodeSettings.EVENT_LOG_OPEN_BUCKETS_SETTING.get(settings));
+        eventLogQueueProcessor.scheduleExecutor();
+    }
+
+    /**
+     * The processor writing the event log, to which in-process consumers of the sealed buckets
+     * can {@link EventLogQueueProcessor#subscribe}.
+     */
+    public EventLogQueueProcessor getEventLogQueueProcessor() {
+        return eventLogQueueProcessor;
     }
 
     // - http level: bulk, search
@@ -298,6 +347,7 @@ public final class PerformanceAnalyzerPlugin extends Plugin
         PerformanceAnalyzerSearchListener performanceanalyzerSearchListener =
                 new PerformanceAnalyzerSearchListener(performanceAnalyzerController);
         indexModule.addSearchOperationListener(performanceanalyzerSearchListener);
+        ShardRegistry.instance().track(indexModule);
     }
 
     // follower check, leader check
@@ -348,7 +398,8 @@ public final class PerformanceAnalyzerPlugin extends Plugin
                         settings,
                         restController,
                         perfAnalyzerClusterSettingHandler,
-                        nodeStatsSettingHandler);
+                        nodeStatsSettingHandler,
+                        collectorIntervalsSettingHandler);
         PerformanceAnalyzerOverridesClusterConfigAction paOverridesConfigClusterAction =
                 new PerformanceAnalyzerOverridesClusterConfigAction(
                         settings,
@@ -407,6 +458,20 @@ public final class PerformanceAnalyzerPlugin extends Plugin
         return Arrays.asList(
                 PerformanceAnalyzerClusterSettings.COMPOSITE_PA_SETTING,
                 PerformanceAnalyzerClusterSettings.PA_NODE_STATS_SETTING,
-                PerformanceAnalyzerClusterSettings.CONFIG_OVERRIDES_SETTING);
+                PerformanceAnalyzerClusterSettings.CONFIG_OVERRIDES_SETTING,
+                PerformanceAnalyzerNodeSettings.EVENT_STAGING_ENABLED_SETTING,
+                PerformanceAnalyzerNodeSettings.EVENT_STAGING_RING_CAPACITY_SETTING,
+                PerformanceAnalyzerNodeSettings.LOAD_SHEDDING_QUEUE_CAPACITY_SETTING,
+                PerformanceAnalyzerNodeSettings.LOAD_SHEDDING_LOW_WATER_MARK_SETTING,
+                PerformanceAnalyzerNodeSettings.LOAD_SHEDDING_HIGH_WATER_MARK_SETTING,
+                PerformanceAnalyzerNodeSettings.SEARCH_EVENT_MODE_SETTING,
+                PerformanceAnalyzerNodeSettings.SEARCH_EVENT_READER_ENABLED_SETTING,
+                PerformanceAnalyzerNodeSettings.EVENT_LOG_WRITER_THREADS_SETTING,
+                PerformanceAnalyzerNodeSettings.EVENT_LOG_OPEN_BUCKETS_SETTING,
+                PerformanceAnalyzerClusterSettings.COLLECTOR_INTERVALS_SETTING,
+                PerformanceAnalyzerNodeSettings.COLLECTOR_CPU_BUDGET_SETTING,
+                PerformanceAnalyzerNodeSettings.COLLECTOR_SHARD_STATS_THREADS_SETTING,
+                PerformanceAnalyzerNodeSettings.COLLECTOR_SHARD_STATS_DEADLINE_SETTING,
+                PerformanceAnalyzerNodeSettings.NODE_STATS_HEARTBEAT_RUNS_SETTING);
     }
 }
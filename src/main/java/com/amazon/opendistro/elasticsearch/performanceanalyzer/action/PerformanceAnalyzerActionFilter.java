@@ -15,8 +15,6 @@
 
 package com.amazon.opendistro.elasticsearch.performanceanalyzer.action;
 
-import java.util.concurrent.atomic.AtomicLong;
-
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.elasticsearch.action.ActionListener;
@@ -31,10 +29,13 @@ import org.elasticsearch.tasks.Task;
 
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.config.PerformanceAnalyzerController;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.PerformanceAnalyzerMetrics;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.util.RequestIdGenerator;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.writer.EventPriority;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.writer.EventStagingQueue;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.writer.RequestEventSampler;
 
 public class PerformanceAnalyzerActionFilter implements ActionFilter {
     private static final Logger LOG = LogManager.getLogger(PerformanceAnalyzerActionFilter.class);
-    private static AtomicLong uniqueID = new AtomicLong(0);
 
     private final PerformanceAnalyzerController controller;
 
@@ -48,27 +49,24 @@ public class PerformanceAnalyzerActionFilter implements ActionFilter {
                                                                                        ActionListener<Response> listener,
                                                                                        ActionFilterChain<Request, Response> chain) {
 
-        if (controller.isPerformanceAnalyzerEnabled()) {
-            if (request instanceof BulkRequest) {
-                PerformanceAnalyzerActionListener<Response> newListener = new PerformanceAnalyzerActionListener<>();
-                String id = String.valueOf(uniqueID.getAndIncrement());
-                long startTime = System.currentTimeMillis();
-                BulkRequest bulk = (BulkRequest) request;
-                newListener.set(RequestType.bulk, id, listener);
-                newListener.saveMetricValues(
-                        newListener.generateStartMetrics(startTime, "", bulk.requests().size()),
-                        startTime, RequestType.bulk.toString(), id, PerformanceAnalyzerMetrics.START_FILE_NAME);
-                chain.proceed(task, action, request, newListener);
-                return;
-            } else if (request instanceof SearchRequest) {
+        if (controller.isPerformanceAnalyzerEnabled() && (request instanceof BulkRequest || request instanceof SearchRequest)) {
+            long startTime = System.currentTimeMillis();
+            double weight = controller.getRequestEventSampler().sample(startTime);
+            if (weight > 0 && EventStagingQueue.INSTANCE.admit(EventPriority.REQUEST)) {
                 PerformanceAnalyzerActionListener<Response> newListener = new PerformanceAnalyzerActionListener<>();
-                String id = String.valueOf(uniqueID.getAndIncrement());
-                long startTime = System.currentTimeMillis();
-                SearchRequest search = (SearchRequest) request;
-                newListener.set(RequestType.search, id, listener);
-                newListener.saveMetricValues(
-                        newListener.generateStartMetrics(startTime, String.join(",", search.indices()), 0),
-                        startTime, RequestType.search.toString(), id, PerformanceAnalyzerMetrics.START_FILE_NAME);
+                String id = String.valueOf(RequestIdGenerator.next());
+                String value;
+                if (request instanceof BulkRequest) {
+                    BulkRequest bulk = (BulkRequest) request;
+                    newListener.set(RequestType.bulk, id, weight, listener);
+                    value = newListener.generateStartMetrics(startTime, "", bulk.requests().size(), weight);
+                } else {
+                    SearchRequest search = (SearchRequest) request;
+                    newListener.set(RequestType.search, id, weight, listener);
+                    value = newListener.generateStartMetrics(startTime, String.join(",", search.indices()), 0, weight);
+                }
+                EventStagingQueue.INSTANCE.emit(newListener, value,
+                        startTime, newListener.getType().toString(), id, PerformanceAnalyzerMetrics.START_FILE_NAME);
                 chain.proceed(task, action, request, newListener);
                 return;
             }
@@ -15,31 +15,65 @@
 
 package com.amazon.opendistro.elasticsearch.performanceanalyzer.action;
 
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.search.SearchResponse;
 
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors.StatsCollector;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.AllMetrics.HttpDimension;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.AllMetrics.HttpMetric;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.MetricsProcessor;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.PerformanceAnalyzerMetrics;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.writer.EventStagingQueue;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.writer.RequestEventEncoder;
 
 public class PerformanceAnalyzerActionListener<Response> implements ActionListener<Response>, MetricsProcessor {
 
     private RequestType type;
     private ActionListener<Response> original;
-    private String id;
+    // Cleared by the first completion, which keeps the listener as small as it was without the check.
+    private volatile String id;
+    private double weight = 1;
     private static final int KEYS_PATH_LENGTH = 3;
+    public static final String DOUBLE_COMPLETION_METRIC = "ActionListenerDoubleCompletion";
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<PerformanceAnalyzerActionListener, String> ID =
+            AtomicReferenceFieldUpdater.newUpdater(PerformanceAnalyzerActionListener.class, String.class, "id");
+    private static final String START_TIME_KEY = RequestEventEncoder.key(HttpMetric.START_TIME);
+    private static final String FINISH_TIME_KEY = RequestEventEncoder.key(HttpMetric.FINISH_TIME);
+    private static final String HTTP_REQUEST_DOCS_KEY = RequestEventEncoder.key(HttpMetric.HTTP_REQUEST_DOCS);
+    private static final String INDICES_KEY = RequestEventEncoder.key(HttpDimension.INDICES);
+    private static final String HTTP_RESP_CODE_KEY = RequestEventEncoder.key(HttpDimension.HTTP_RESP_CODE);
+    private static final String EXCEPTION_KEY = RequestEventEncoder.key(HttpDimension.EXCEPTION);
 
     void set(RequestType type, String id, ActionListener<Response> original) {
+        set(type, id, 1, original);
+    }
+
+    void set(RequestType type, String id, double weight, ActionListener<Response> original) {
         this.type = type;
-        this.id = id;
+        this.weight = weight;
         this.original = original;
+        this.id = id;
+    }
+
+    RequestType getType() {
+        return type;
     }
 
     @Override
     public void onResponse(Response response) {
+        String requestId = complete();
+        if (requestId != null) {
+            emitResponseMetrics(requestId, response);
+        }
+        original.onResponse(response);
+    }
+
+    private void emitResponseMetrics(String id, Response response) {
         int responseStatus = -1;
 
         if (response instanceof BulkResponse) {
@@ -53,55 +87,68 @@ public class PerformanceAnalyzerActionListener<Response> implements ActionListen
         //- If response type is BulkResponse/SearchResponse, responseStatus will not be -1
         if (responseStatus != -1) {
             long currTime = System.currentTimeMillis();
-            saveMetricValues(generateFinishMetrics(currTime, responseStatus, ""),
+            EventStagingQueue.INSTANCE.emit(this,
+                    generateFinishMetrics(currTime, responseStatus, "", weight),
                     currTime, type.toString(), id, PerformanceAnalyzerMetrics.FINISH_FILE_NAME);
         }
-
-        original.onResponse(response);
     }
 
     @Override
     public void onFailure(Exception exception) {
+        String requestId = complete();
+        if (requestId != null) {
+            emitFailureMetrics(requestId, exception);
+        }
+        original.onFailure(exception);
+    }
+
+    /** Returns the id of the request on its first completion only, and counts the others. */
+    private String complete() {
+        String requestId = id;
+        if (requestId == null || !ID.compareAndSet(this, requestId, null)) {
+            StatsCollector.instance().logMetric(DOUBLE_COMPLETION_METRIC);
+            return null;
+        }
+        return requestId;
+    }
+
+    private void emitFailureMetrics(String id, Exception exception) {
         long currTime = System.currentTimeMillis();
 
         if (exception instanceof ElasticsearchException) {
-            saveMetricValues(generateFinishMetrics(currTime, ((ElasticsearchException) exception).status().getStatus(),
-                    exception.getClass().getName()), currTime, type.toString(), id, PerformanceAnalyzerMetrics.FINISH_FILE_NAME);
+            EventStagingQueue.INSTANCE.emit(this,
+                    generateFinishMetrics(currTime, ((ElasticsearchException) exception).status().getStatus(),
+                            exception.getClass().getName(), weight),
+                    currTime, type.toString(), id, PerformanceAnalyzerMetrics.FINISH_FILE_NAME);
         } else {
-            saveMetricValues(generateFinishMetrics(currTime, -1, exception.getClass().getName()),
+            EventStagingQueue.INSTANCE.emit(this,
+                    generateFinishMetrics(currTime, -1, exception.getClass().getName(), weight),
                     currTime, type.toString(), id, PerformanceAnalyzerMetrics.FINISH_FILE_NAME);
         }
-
-        original.onFailure(exception);
     }
 
     static String generateStartMetrics(long startTime, String indices, int itemCount) {
-        return new StringBuilder()
-                .append(PerformanceAnalyzerMetrics.getCurrentTimeMetric())
-                .append(PerformanceAnalyzerMetrics.sMetricNewLineDelimitor).append(
-                        HttpMetric.START_TIME.toString())
-                .append(PerformanceAnalyzerMetrics.sKeyValueDelimitor).append(startTime)
-                .append(PerformanceAnalyzerMetrics.sMetricNewLineDelimitor).append(
-                        HttpDimension.INDICES.toString())
-                .append(PerformanceAnalyzerMetrics.sKeyValueDelimitor).append(indices)
-                .append(PerformanceAnalyzerMetrics.sMetricNewLineDelimitor).append(
-                        HttpMetric.HTTP_REQUEST_DOCS.toString()).append(
-                                PerformanceAnalyzerMetrics.sKeyValueDelimitor)
-                .append(itemCount).toString();
+        return generateStartMetrics(startTime, indices, itemCount, 1);
+    }
+
+    static String generateStartMetrics(long startTime, String indices, int itemCount, double weight) {
+        return RequestEventEncoder.start()
+                .append(START_TIME_KEY, startTime)
+                .append(INDICES_KEY, indices)
+                .append(HTTP_REQUEST_DOCS_KEY, itemCount)
+                .encode(weight);
     }
 
     static String generateFinishMetrics(long finishTime, int status, String exception) {
-        return new StringBuilder()
-                .append(PerformanceAnalyzerMetrics.getCurrentTimeMetric())
-                .append(PerformanceAnalyzerMetrics.sMetricNewLineDelimitor).append(
-                        HttpMetric.FINISH_TIME.toString())
-                .append(PerformanceAnalyzerMetrics.sKeyValueDelimitor).append(finishTime)
-                .append(PerformanceAnalyzerMetrics.sMetricNewLineDelimitor).append(
-                        HttpDimension.HTTP_RESP_CODE.toString())
-                .append(PerformanceAnalyzerMetrics.sKeyValueDelimitor).append(status)
-                .append(PerformanceAnalyzerMetrics.sMetricNewLineDelimitor).append(
-                        HttpDimension.EXCEPTION.toString()).append(PerformanceAnalyzerMetrics.sKeyValueDelimitor)
-                .append(exception).toString();
+        return generateFinishMetrics(finishTime, status, exception, 1);
+    }
+
+    static String generateFinishMetrics(long finishTime, int status, String exception, double weight) {
+        return RequestEventEncoder.start()
+                .append(FINISH_TIME_KEY, finishTime)
+                .append(HTTP_RESP_CODE_KEY, status)
+                .append(EXCEPTION_KEY, exception)
+                .encode(weight);
     }
 
     @Override
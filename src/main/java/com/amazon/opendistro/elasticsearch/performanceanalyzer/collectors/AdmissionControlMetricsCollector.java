@@ -32,7 +32,7 @@ import java.util.Objects;
 /**
  * AdmissionControlMetricsCollector collects `UsedQuota`, `TotalQuota`, RejectionCount
  */
-public class AdmissionControlMetricsCollector extends PerformanceAnalyzerMetricsCollector implements MetricsProcessor {
+public class AdmissionControlMetricsCollector extends TunableMetricsCollector implements MetricsProcessor {
 
     private static final Logger LOG = LogManager.getLogger(AdmissionControlMetricsCollector.class);
     private static final int sTimeInterval = MetricsConfiguration.SAMPLING_INTERVAL;
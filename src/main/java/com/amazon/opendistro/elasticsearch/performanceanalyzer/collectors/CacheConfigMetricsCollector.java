@@ -45,7 +45,7 @@ import org.elasticsearch.indices.IndicesService;
  * cache metric.
  *
  */
-public class CacheConfigMetricsCollector extends PerformanceAnalyzerMetricsCollector implements MetricsProcessor {
+public class CacheConfigMetricsCollector extends TunableMetricsCollector implements MetricsProcessor {
     public static final int SAMPLING_TIME_INTERVAL = MetricsConfiguration.CONFIG_MAP.get(
             CacheConfigMetricsCollector.class).samplingInterval;
     private static final int KEYS_PATH_LENGTH = 0;
@@ -56,6 +56,11 @@ public class CacheConfigMetricsCollector extends PerformanceAnalyzerMetricsColle
         value = new StringBuilder();
     }
 
+    @Override
+    protected CollectorBudget.Priority getPriority() {
+        return CollectorBudget.Priority.LOW;
+    }
+
     @Override
     public void collectMetrics(long startTime) {
         IndicesService indicesService = ESResources.INSTANCE.getIndicesService();
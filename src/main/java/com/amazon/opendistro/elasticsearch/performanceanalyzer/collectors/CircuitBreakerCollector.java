@@ -25,7 +25,7 @@ import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.MetricsPr
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.PerformanceAnalyzerMetrics;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
-public class CircuitBreakerCollector extends PerformanceAnalyzerMetricsCollector implements MetricsProcessor {
+public class CircuitBreakerCollector extends TunableMetricsCollector implements MetricsProcessor {
     public static final int SAMPLING_TIME_INTERVAL = MetricsConfiguration.CONFIG_MAP.get(CircuitBreakerCollector.class).samplingInterval;
     private static final int KEYS_PATH_LENGTH = 0;
     private StringBuilder value;
@@ -38,7 +38,7 @@ import org.elasticsearch.cluster.service.ClusterApplierService;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 
-public class ClusterApplierServiceStatsCollector extends PerformanceAnalyzerMetricsCollector implements
+public class ClusterApplierServiceStatsCollector extends TunableMetricsCollector implements
         MetricsProcessor {
     public static final int SAMPLING_TIME_INTERVAL =
             MetricsConfiguration.CONFIG_MAP.get(ClusterApplierServiceStatsCollector.class).samplingInterval;
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Keeps the CPU time spent by the collectors of this plugin within a budget, expressed as a
+ * fraction of one core, by stretching the intervals of the most expensive, lowest priority
+ * collectors first.
+ *
+ * <p>The {@link TunableMetricsCollector}s report the CPU time of each of their runs, which is
+ * averaged per collector. The CPU rate of a collector is its average cost per run over its
+ * configured interval. While the sum of the rates exceeds the budget, the collectors that are not
+ * {@link Priority#HIGH} are stretched one at a time, the {@link Priority#LOW} ones first and the
+ * most expensive first within a priority, by the smallest whole factor that brings the sum back
+ * within the budget, up to {@link #MAX_STRETCH}. The stretches are recomputed from the configured
+ * intervals after every run, so they are lifted once the collectors get cheaper again. Each
+ * change is logged, and each stretch counted as {@link #STRETCHED_METRIC}.
+ *
+ * <p>The budget is disabled by default, in which case the collectors keep their intervals.
+ */
+public enum CollectorBudget {
+    INSTANCE;
+
+    /** Whether a collector can be stretched, and in which order. */
+    public enum Priority {
+        /** Never stretched. */
+        HIGH,
+        NORMAL,
+        /** Stretched before the others. */
+        LOW
+    }
+
+    private static final Logger LOG = LogManager.getLogger(CollectorBudget.class);
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+    public static final String STRETCHED_METRIC = "CollectorIntervalStretched";
+    public static final int MAX_STRETCH = 12;
+    // Weight of the last run in the average cost of a collector.
+    private static final double COST_SMOOTHING = 0.3;
+    // CPU time other threads spent on behalf of each thread, see charge.
+    private static final ThreadLocal<long[]> CHARGED_NANOS =
+            ThreadLocal.withInitial(() -> new long[1]);
+
+    private final Map<Class<?>, Cost> costs = new HashMap<>();
+    private volatile Map<Class<?>, Integer> stretches = Collections.emptyMap();
+    private volatile double cpuBudget = 0;
+
+    /**
+     * Sets the budget as a fraction of one core, 0 to disable it. Meant to be called once when the
+     * plugin loads.
+     */
+    public synchronized void configure(double cpuBudget) {
+        this.cpuBudget = cpuBudget;
+        costs.clear();
+        stretches = Collections.emptyMap();
+    }
+
+    /** Returns the interval the collector should run at, given its configured interval. */
+    public int stretch(Class<?> collector, int interval) {
+        Integer stretch = stretches.get(collector);
+        if (stretch == null) {
+            return interval;
+        }
+        return (int) Math.min((long) interval * stretch, CollectorIntervals.MAX_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Records the CPU time of a run of the collector, and recomputes the stretches.
+     *
+     * @param interval the configured interval of the collector, before stretching.
+     */
+    public synchronized void record(
+            Class<?> collector, Priority priority, int interval, long cpuNanos) {
+        if (cpuBudget <= 0 || interval <= 0) {
+            return;
+        }
+        Cost cost = costs.get(collector);
+        if (cost == null) {
+            cost = new Cost(collector, priority, cpuNanos);
+            costs.put(collector, cost);
+        } else {
+            cost.nanosPerRun += COST_SMOOTHING * (cpuNanos - cost.nanosPerRun);
+        }
+        cost.interval = interval;
+        updateStretches();
+    }
+
+    /**
+     * Returns the CPU time of the calling thread, or the wall time if it is not available, plus
+     * the CPU time {@link #charge charged} to it.
+     */
+    public static long currentThreadCpuNanos() {
+        long charged = CHARGED_NANOS.get()[0];
+        if (THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported()) {
+            long nanos = THREAD_MX_BEAN.getCurrentThreadCpuTime();
+            if (nanos >= 0) {
+                return nanos + charged;
+            }
+        }
+        return System.nanoTime() + charged;
+    }
+
+    /**
+     * Charges to the calling thread CPU time that other threads spent on its behalf, so that a
+     * collector that hands work off to a pool is still accounted for it.
+     */
+    public static void charge(long cpuNanos) {
+        CHARGED_NANOS.get()[0] += cpuNanos;
+    }
+
+    private void updateStretches() {
+        double excess = -cpuBudget;
+        List<Cost> stretchable = new ArrayList<>();
+        for (Cost cost : costs.values()) {
+            excess += cost.rate();
+            if (cost.priority != Priority.HIGH) {
+                stretchable.add(cost);
+            }
+        }
+        stretchable.sort(
+                Comparator.comparing((Cost cost) -> cost.priority)
+                        .reversed()
+                        .thenComparing(Comparator.comparingDouble(Cost::rate).reversed()));
+
+        Map<Class<?>, Integer> newStretches = new HashMap<>();
+        for (Cost cost : stretchable) {
+            if (excess <= 0) {
+                break;
+            }
+            double rate = cost.rate();
+            int stretch = MAX_STRETCH;
+            if (rate * (1 - 1.0 / MAX_STRETCH) > excess) {
+                // The smallest stretch s such that rate * (1 - 1 / s) >= excess.
+                stretch = Math.max(2, (int) Math.ceil(rate / (rate - excess)));
+            }
+            excess -= rate * (1 - 1.0 / stretch);
+            newStretches.put(cost.collector, stretch);
+        }
+        if (excess > 0 && !newStretches.isEmpty()) {
+            LOG.debug("Collectors exceed the CPU budget of {} even when stretched", cpuBudget);
+        }
+        report(newStretches);
+        stretches = newStretches;
+    }
+
+    private void report(Map<Class<?>, Integer> newStretches) {
+        Map<Class<?>, Integer> oldStretches = stretches;
+        for (Map.Entry<Class<?>, Integer> entry : newStretches.entrySet()) {
+            Integer oldStretch = oldStretches.get(entry.getKey());
+            if (!entry.getValue().equals(oldStretch)) {
+                LOG.info(
+                        "Stretching the interval of {} by {} to stay within the collector CPU "
+                                + "budget of {}",
+                        entry.getKey().getSimpleName(),
+                        entry.getValue(),
+                        cpuBudget);
+                StatsCollector.instance().logMetric(STRETCHED_METRIC);
+            }
+        }
+        for (Class<?> collector : oldStretches.keySet()) {
+            if (!newStretches.containsKey(collector)) {
+                LOG.info("Restoring the interval of {}", collector.getSimpleName());
+            }
+        }
+    }
+
+    private static final class Cost {
+        private final Class<?> collector;
+        private final Priority priority;
+        private double nanosPerRun;
+        private int interval;
+
+        private Cost(Class<?> collector, Priority priority, long nanosPerRun) {
+            this.collector = collector;
+            this.priority = priority;
+            this.nanosPerRun = nanosPerRun;
+        }
+
+        /** Fraction of one core used by the collector at its configured interval. */
+        private double rate() {
+            return nanosPerRun / (interval * 1_000_000.0);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.config.setting.PerformanceAnalyzerClusterSettings;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.TreeSet;
+
+/**
+ * Sampling intervals of the collectors overridden at runtime with the {@link
+ * PerformanceAnalyzerClusterSettings#COLLECTOR_INTERVALS_SETTING}, by the simple name of the
+ * collector class, for instance to run the {@link NodeStatsAllShardsMetricsCollector} less often
+ * on nodes with many shards.
+ *
+ * <p>The overrides apply to the {@link TunableMetricsCollector}s from their next run. Collectors
+ * without an override keep the interval of the {@code MetricsConfiguration}.
+ */
+public enum CollectorIntervals {
+    INSTANCE;
+
+    public static final int MIN_INTERVAL_MILLIS = 1000;
+    public static final int MAX_INTERVAL_MILLIS = 10 * 60 * 1000;
+
+    /** Simple names of the {@link TunableMetricsCollector}s, the only ones overrides apply to. */
+    static final Set<String> COLLECTORS =
+            names(
+                    AdmissionControlMetricsCollector.class,
+                    CacheConfigMetricsCollector.class,
+                    CircuitBreakerCollector.class,
+                    ClusterApplierServiceStatsCollector.class,
+                    ElectionTermCollector.class,
+                    FaultDetectionMetricsCollector.class,
+                    MasterClusterStateUpdateStatsCollector.class,
+                    MasterServiceEventMetrics.class,
+                    MasterServiceMetrics.class,
+                    MasterThrottlingMetricsCollector.class,
+                    NodeDetailsCollector.class,
+                    NodeStatsAllShardsMetricsCollector.class,
+                    NodeStatsFixedShardsMetricsCollector.class,
+                    SearchLatencyCollector.class,
+                    ShardIndexingPressureMetricsCollector.class,
+                    ShardStateCollector.class,
+                    ThreadPoolMetricsCollector.class);
+
+    private volatile Map<String, Integer> intervals = Collections.emptyMap();
+
+    /** Returns the overridden interval of the collector, or the given default. */
+    public int get(
+            Class<? extends PerformanceAnalyzerMetricsCollector> collector, int defaultInterval) {
+        Integer interval = intervals.get(collector.getSimpleName());
+        return interval != null ? interval : defaultInterval;
+    }
+
+    /** Returns the overridden intervals, by collector name. */
+    public Map<String, Integer> getAll() {
+        return intervals;
+    }
+
+    /** Replaces the overridden intervals, which must have been validated by {@link #parse}. */
+    public void update(Map<String, Integer> intervals) {
+        this.intervals = Collections.unmodifiableMap(new LinkedHashMap<>(intervals));
+    }
+
+    /**
+     * Parses the value of the setting, a comma separated list of {@code collector:millis} pairs,
+     * for instance {@code NodeStatsAllShardsMetricsCollector:30000}.
+     *
+     * @throws IllegalArgumentException if a pair is malformed, names an unknown collector or its
+     *     interval is out of range.
+     */
+    public static Map<String, Integer> parse(String value) {
+        Map<String, Integer> intervals = new LinkedHashMap<>();
+        if (value == null || value.trim().isEmpty()) {
+            return intervals;
+        }
+        for (String pair : value.split(",")) {
+            int separator = pair.indexOf(':');
+            String collector = separator > 0 ? pair.substring(0, separator).trim() : "";
+            if (collector.isEmpty()) {
+                throw new IllegalArgumentException("Invalid collector interval [" + pair + "]");
+            }
+            int interval;
+            try {
+                interval = Integer.parseInt(pair.substring(separator + 1).trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid collector interval [" + pair + "]", e);
+            }
+            intervals.put(collector, validate(collector, interval));
+        }
+        return intervals;
+    }
+
+    /** Formats the intervals as the value of the setting, the reverse of {@link #parse}. */
+    public static String format(Map<String, Integer> intervals) {
+        StringJoiner value = new StringJoiner(",");
+        for (Map.Entry<String, Integer> entry : intervals.entrySet()) {
+            value.add(entry.getKey() + ":" + validate(entry.getKey(), entry.getValue()));
+        }
+        return value.toString();
+    }
+
+    private static int validate(String collector, int interval) {
+        if (!COLLECTORS.contains(collector)) {
+            throw new IllegalArgumentException(
+                    "Unknown collector [" + collector + "], expected one of " + COLLECTORS);
+        }
+        if (interval < MIN_INTERVAL_MILLIS || interval > MAX_INTERVAL_MILLIS) {
+            throw new IllegalArgumentException(
+                    "Interval of collector ["
+                            + collector
+                            + "] must be between "
+                            + MIN_INTERVAL_MILLIS
+                            + " and "
+                            + MAX_INTERVAL_MILLIS
+                            + " ms, got "
+                            + interval);
+        }
+        return interval;
+    }
+
+    @SafeVarargs
+    private static Set<String> names(Class<? extends TunableMetricsCollector>... collectors) {
+        Set<String> names = new TreeSet<>();
+        for (Class<? extends TunableMetricsCollector> collector : collectors) {
+            names.add(collector.getSimpleName());
+        }
+        return Collections.unmodifiableSet(names);
+    }
+}
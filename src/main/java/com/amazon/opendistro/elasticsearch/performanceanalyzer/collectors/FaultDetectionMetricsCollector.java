@@ -36,7 +36,7 @@ import java.util.concurrent.BlockingQueue;
 
 import static com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.PerformanceAnalyzerMetrics.addMetricEntry;
 
-public class FaultDetectionMetricsCollector extends PerformanceAnalyzerMetricsCollector implements MetricsProcessor {
+public class FaultDetectionMetricsCollector extends TunableMetricsCollector implements MetricsProcessor {
     public static final int SAMPLING_TIME_INTERVAL = MetricsConfiguration.CONFIG_MAP.
             get(FaultDetectionMetricsCollector.class).samplingInterval;
     private static final int KEYS_PATH_LENGTH = 3;
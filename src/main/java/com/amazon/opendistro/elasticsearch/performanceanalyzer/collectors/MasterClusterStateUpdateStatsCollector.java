@@ -43,7 +43,7 @@ import java.lang.reflect.Method;
  * This class starts publishing latency and failure metrics for Publish Phase of Cluster state. These metrics are
  * emitted from Master node.
  */
-public class MasterClusterStateUpdateStatsCollector extends PerformanceAnalyzerMetricsCollector implements
+public class MasterClusterStateUpdateStatsCollector extends TunableMetricsCollector implements
         MetricsProcessor {
     public static final int SAMPLING_TIME_INTERVAL =
             MetricsConfiguration.CONFIG_MAP.get(MasterClusterStateUpdateStatsCollector.class).samplingInterval;
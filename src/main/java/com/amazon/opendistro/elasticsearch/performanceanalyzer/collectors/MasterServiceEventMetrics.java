@@ -39,7 +39,7 @@ import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.Performan
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.ThreadIDUtil;
 
 @SuppressWarnings("unchecked")
-public class MasterServiceEventMetrics extends PerformanceAnalyzerMetricsCollector implements MetricsProcessor {
+public class MasterServiceEventMetrics extends TunableMetricsCollector implements MetricsProcessor {
     public static final int SAMPLING_TIME_INTERVAL = MetricsConfiguration.CONFIG_MAP.get(
             MasterServiceEventMetrics.class).samplingInterval;
     private static final Logger LOG = LogManager.getLogger(MasterServiceEventMetrics.class);
@@ -77,6 +77,11 @@ public class MasterServiceEventMetrics extends PerformanceAnalyzerMetricsCollect
                 keysPath[0], PerformanceAnalyzerMetrics.sMasterTaskPath, keysPath[1], keysPath[2]);
     }
 
+    @Override
+    protected CollectorBudget.Priority getPriority() {
+        return CollectorBudget.Priority.HIGH;
+    }
+
     @Override
     public void collectMetrics(long startTime) {
         try {
@@ -116,7 +121,7 @@ public class MasterServiceEventMetrics extends PerformanceAnalyzerMetricsCollect
                     //- as it is sampling, we won't exactly know the start time of the current task, we will be
                     //- capturing start time as midpoint of previous time bucket
                     PerformanceAnalyzerMetrics.addMetricEntry(value, MasterMetricValues.START_TIME.toString(),
-                            startTime - SAMPLING_TIME_INTERVAL / 2);
+                            startTime - getTimeInterval() / 2);
                     PerformanceAnalyzerMetrics.addMetricEntry(value, MasterMetricDimensions.MASTER_TASK_TYPE.toString(),
                             firstSpaceIndex == -1 ? task.source() : task.source().substring(0, firstSpaceIndex));
                     PerformanceAnalyzerMetrics.addMetricEntry(value, MasterMetricDimensions.MASTER_TASK_METADATA.toString(),
@@ -145,7 +150,7 @@ public class MasterServiceEventMetrics extends PerformanceAnalyzerMetricsCollect
         if (lastTaskInsertionOrder != -1) {
             value.append(PerformanceAnalyzerMetrics.getCurrentTimeMetric());
             PerformanceAnalyzerMetrics.addMetricEntry(value, MasterMetricValues.FINISH_TIME.toString(),
-                    startTime - SAMPLING_TIME_INTERVAL / 2);
+                    startTime - getTimeInterval() / 2);
             saveMetricValues(value.toString(), startTime, String.valueOf(currentThreadId),
                     String.valueOf(lastTaskInsertionOrder), PerformanceAnalyzerMetrics.FINISH_FILE_NAME);
             value.setLength(0);
@@ -32,7 +32,7 @@ import java.util.List;
 
 
 @SuppressWarnings("unchecked")
-public class MasterServiceMetrics extends PerformanceAnalyzerMetricsCollector implements MetricsProcessor {
+public class MasterServiceMetrics extends TunableMetricsCollector implements MetricsProcessor {
     public static final int SAMPLING_TIME_INTERVAL = MetricsConfiguration.CONFIG_MAP.get(MasterServiceMetrics.class).samplingInterval;
     private static final Logger LOG = LogManager.getLogger(MasterServiceMetrics.class);
     private static final int KEYS_PATH_LENGTH = 2;
@@ -32,7 +32,7 @@ import org.elasticsearch.cluster.service.MasterService;
 
 import java.lang.reflect.Method;
 
-public class MasterThrottlingMetricsCollector extends PerformanceAnalyzerMetricsCollector implements MetricsProcessor {
+public class MasterThrottlingMetricsCollector extends TunableMetricsCollector implements MetricsProcessor {
 
     public static final int SAMPLING_TIME_INTERVAL =
             MetricsConfiguration.CONFIG_MAP.get(MasterThrottlingMetricsCollector.class).samplingInterval;
@@ -32,7 +32,7 @@ import org.elasticsearch.cluster.node.DiscoveryNodes;
 import java.io.IOException;
 import java.util.Iterator;
 
-public class NodeDetailsCollector extends PerformanceAnalyzerMetricsCollector implements MetricsProcessor {
+public class NodeDetailsCollector extends TunableMetricsCollector implements MetricsProcessor {
     public static final int SAMPLING_TIME_INTERVAL = MetricsConfiguration.CONFIG_MAP.get(NodeDetailsCollector.class).samplingInterval;
     private static final Logger LOG = LogManager.getLogger(NodeDetailsCollector.class);
     private static final int KEYS_PATH_LENGTH = 0;
@@ -43,6 +43,11 @@ public class NodeDetailsCollector extends PerformanceAnalyzerMetricsCollector im
         this.configOverridesWrapper = configOverridesWrapper;
     }
 
+    @Override
+    protected CollectorBudget.Priority getPriority() {
+        return CollectorBudget.Priority.HIGH;
+    }
+
     @Override
     public void collectMetrics(long startTime) {
         if (ESResources.INSTANCE.getClusterService() == null
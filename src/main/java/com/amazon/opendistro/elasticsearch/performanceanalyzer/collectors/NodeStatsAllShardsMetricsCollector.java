@@ -21,20 +21,22 @@ import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.AllMetric
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.MetricsConfiguration;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.MetricsProcessor;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.PerformanceAnalyzerMetrics;
-import com.amazon.opendistro.elasticsearch.performanceanalyzer.util.Utils;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.util.ShardRegistry;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.collect.ImmutableMap;
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.elasticsearch.action.admin.indices.stats.CommonStatsFlags;
-import org.elasticsearch.action.admin.indices.stats.IndexShardStats;
 import org.elasticsearch.action.admin.indices.stats.ShardStats;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.indices.IndicesQueryCache;
 import org.elasticsearch.indices.IndicesService;
 import org.elasticsearch.indices.NodeIndicesStats;
 
@@ -47,43 +49,47 @@ import org.elasticsearch.indices.NodeIndicesStats;
 /**
  * currentShards: Contains the Mapping of the Shard ID to the Shard for the shards currently present on
  * the cluster in this run of the collector.
- * currentPerShardStats: Contains the mapping of the Shard Stats and the shards present in this run
- * of the collector.
- * prevPerShardStats: Contains the mapping of the Shard Stats and the shards present in the previous
- * run of the collector.
- * The diff is calculated between (currentPerShardStats and prevPerShardStats) for each shard in the
- * currentShards and for shards not present in the prevPerShardStat absolute value of the
- * currentPerShardStats is updated.
+ * counterStore: Contains the cache values of the shards read in this run and in the previous run,
+ * see {@link ShardCounterStore}.
+ * The diff is calculated between the two runs for each shard in the currentShards, and for shards
+ * not present in the previous run the absolute value is reported.
  */
 
 
 @SuppressWarnings("unchecked")
-public class NodeStatsAllShardsMetricsCollector extends PerformanceAnalyzerMetricsCollector implements MetricsProcessor {
+public class NodeStatsAllShardsMetricsCollector extends TunableMetricsCollector implements MetricsProcessor {
     public static final int SAMPLING_TIME_INTERVAL = MetricsConfiguration.CONFIG_MAP.get(
             NodeStatsAllShardsMetricsCollector.class).samplingInterval;
     private static final int KEYS_PATH_LENGTH = 2;
     private static final Logger LOG = LogManager.getLogger(NodeStatsAllShardsMetricsCollector.class);
-    private HashMap<ShardId, IndexShard> currentShards;
-    private HashMap<ShardId, ShardStats> currentPerShardStats;
-    private HashMap<ShardId, ShardStats> prevPerShardStats;
+    private Map<ShardId, IndexShard> currentShards;
+    private List<IndexShard> currentShardList;
+    private final ShardCounterStore counterStore = new ShardCounterStore(COUNTERS);
     private final PerformanceAnalyzerController controller;
 
 
     public NodeStatsAllShardsMetricsCollector(final PerformanceAnalyzerController controller) {
+        this(controller, 0);
+    }
+
+    /**
+     * heartbeatRuns: when greater than 0, the shards whose cache values did not change since the previous
+     * run are only reported once every heartbeatRuns runs.
+     */
+    public NodeStatsAllShardsMetricsCollector(final PerformanceAnalyzerController controller, int heartbeatRuns) {
         super(SAMPLING_TIME_INTERVAL, "NodeStatsMetrics");
-        currentShards = new HashMap<>();
-        prevPerShardStats = new HashMap<>();
-        currentPerShardStats = new HashMap<>();
+        counterStore.setHeartbeat(heartbeatRuns);
+        currentShards = Collections.emptyMap();
+        currentShardList = Collections.emptyList();
         this.controller = controller;
     }
 
     private void populateCurrentShards() {
-        if (!currentShards.isEmpty()) {
-            prevPerShardStats.putAll(currentPerShardStats);
-            currentPerShardStats.clear();
+        Map<ShardId, IndexShard> shards = ShardRegistry.instance().getShards();
+        if (shards != currentShards) {
+            currentShards = shards;
+            currentShardList = new ArrayList<>(shards.values());
         }
-        currentShards.clear();
-        currentShards = Utils.getShards();
     }
 
     private static final Map<String, ValueCalculator> maps = new HashMap<String, ValueCalculator>() { {
@@ -106,6 +112,10 @@ public class NodeStatsAllShardsMetricsCollector extends PerformanceAnalyzerMetri
 
     private static final ImmutableMap<String, ValueCalculator> valueCalculators = ImmutableMap.copyOf(maps);
 
+    // Columns of the counterStore, in the order of the NodeStatsMetricsAllShardsPerCollectionStatus fields,
+    // as read by the ShardStatsProbe.
+    private static final boolean[] COUNTERS = {true, true, false, true, false, true, true, true, false};
+
     @Override
     public String getMetricsPath(long startTime, String... keysPath) {
         // throw exception if keysPath.length is not equal to 2 (Keys should be Index Name, and ShardId)
@@ -115,6 +125,11 @@ public class NodeStatsAllShardsMetricsCollector extends PerformanceAnalyzerMetri
         return PerformanceAnalyzerMetrics.generatePath(startTime, PerformanceAnalyzerMetrics.sIndicesPath, keysPath[0], keysPath[1]);
     }
 
+    @Override
+    protected CollectorBudget.Priority getPriority() {
+        return CollectorBudget.Priority.LOW;
+    }
+
     @Override
     public void collectMetrics(long startTime) {
         IndicesService indicesService = ESResources.INSTANCE.getIndicesService();
@@ -127,25 +142,11 @@ public class NodeStatsAllShardsMetricsCollector extends PerformanceAnalyzerMetri
             populateCurrentShards();
             populatePerShardStats(indicesService);
 
-            for (HashMap.Entry currentShard : currentPerShardStats.entrySet()) {
-                ShardId shardId = (ShardId) currentShard.getKey();
-                ShardStats currentShardStats = (ShardStats) currentShard.getValue();
-                if (prevPerShardStats.size() == 0) {
-                    // Populating value for the first run.
-                    populateMetricValue(currentShardStats, startTime, shardId.getIndexName(), shardId.id());
-                    continue;
+            for (int slot = 0; slot < counterStore.slotLimit(); slot++) {
+                if (counterStore.isReported(slot)) {
+                    ShardId shardId = counterStore.shardId(slot);
+                    populateMetricValue(slot, startTime, shardId.getIndexName(), shardId.id());
                 }
-                ShardStats prevShardStats = prevPerShardStats.get(shardId);
-                if (prevShardStats == null) {
-                    // Populate value for shards which are new and were not present in the previous run.
-                    populateMetricValue(currentShardStats, startTime, shardId.getIndexName(), shardId.id());
-                    continue;
-                }
-                NodeStatsMetricsAllShardsPerCollectionStatus prevValue = new
-                        NodeStatsMetricsAllShardsPerCollectionStatus(prevShardStats);
-                NodeStatsMetricsAllShardsPerCollectionStatus currValue = new
-                        NodeStatsMetricsAllShardsPerCollectionStatus(currentShardStats);
-                populateDiffMetricValue(prevValue, currValue, startTime, shardId.getIndexName(), shardId.id());
             }
         } catch (Exception ex) {
             LOG.debug("Exception in Collecting NodesStats Metrics: {} for startTime {} with ExceptionCode: {}",
@@ -164,45 +165,38 @@ public class NodeStatsAllShardsMetricsCollector extends PerformanceAnalyzerMetri
     public void populatePerShardStats(IndicesService indicesService) {
 
         //Populate the shard stats per shard.
-        for (HashMap.Entry currentShard : currentShards.entrySet() ){
-            IndexShard currentIndexShard = (IndexShard)currentShard.getValue();
-            IndexShardStats currentIndexShardStats = Utils.indexShardStats(indicesService,
-                    currentIndexShard, new CommonStatsFlags(CommonStatsFlags.Flag.QueryCache,
-                                                            CommonStatsFlags.Flag.FieldData,
-                                                            CommonStatsFlags.Flag.RequestCache));
-            for (ShardStats shardStats : currentIndexShardStats.getShards()) {
-                currentPerShardStats.put(currentIndexShardStats.getShardId(), shardStats);
+        IndicesQueryCache indicesQueryCache = indicesService.getIndicesQueryCache();
+        long[] values = new long[currentShardList.size() * ShardStatsProbe.CACHE_VALUES];
+        boolean[] read = ShardStatsPool.INSTANCE.read(currentShardList, (i, shard) ->
+                ShardStatsProbe.readCacheStats(indicesQueryCache, shard, values, i * ShardStatsProbe.CACHE_VALUES));
+        counterStore.beginCycle();
+        for (int i = 0; i < read.length; i++) {
+            ShardId shardId = currentShardList.get(i).shardId();
+            if (!read[i]) {
+                counterStore.retain(shardId);
+                continue;
+            }
+            int slot = counterStore.slot(shardId);
+            for (int column = 0; column < ShardStatsProbe.CACHE_VALUES; column++) {
+                counterStore.set(slot, column, values[i * ShardStatsProbe.CACHE_VALUES + column]);
             }
         }
-        return;
+        counterStore.endCycle();
     }
 
-    public void populateMetricValue(ShardStats shardStats, long startTime, String IndexName, int ShardId) {
-        StringBuilder value = new StringBuilder();
-        value.append(PerformanceAnalyzerMetrics.getJsonCurrentMilliSeconds());
-        // Populate the result with cache specific metrics only.
-        value.append(PerformanceAnalyzerMetrics.sMetricNewLineDelimitor)
-                .append(new NodeStatsMetricsAllShardsPerCollectionStatus(shardStats).serialize());
-        saveMetricValues(value.toString(), startTime, IndexName,
-                String.valueOf(ShardId));
-    }
-
-    public void populateDiffMetricValue(NodeStatsMetricsAllShardsPerCollectionStatus prevValue,
-                                        NodeStatsMetricsAllShardsPerCollectionStatus currValue,
-                                        long startTime, String IndexName, int ShardId) {
-        StringBuilder value = new StringBuilder();
-
+    private void populateMetricValue(int slot, long startTime, String IndexName, int ShardId) {
         NodeStatsMetricsAllShardsPerCollectionStatus nodeStatsMetrics = new NodeStatsMetricsAllShardsPerCollectionStatus(
-                Math.max((currValue.queryCacheHitCount - prevValue.queryCacheHitCount), 0),
-                Math.max((currValue.queryCacheMissCount - prevValue.queryCacheMissCount), 0),
-                currValue.queryCacheInBytes,
-                Math.max((currValue.fieldDataEvictions - prevValue.fieldDataEvictions), 0),
-                currValue.fieldDataInBytes,
-                Math.max((currValue.requestCacheHitCount - prevValue.requestCacheHitCount), 0),
-                Math.max((currValue.requestCacheMissCount - prevValue.requestCacheMissCount), 0),
-                Math.max((currValue.requestCacheEvictions - prevValue.requestCacheEvictions), 0),
-                currValue.requestCacheInBytes);
+                counterStore.value(slot, 0),
+                counterStore.value(slot, 1),
+                counterStore.value(slot, 2),
+                counterStore.value(slot, 3),
+                counterStore.value(slot, 4),
+                counterStore.value(slot, 5),
+                counterStore.value(slot, 6),
+                counterStore.value(slot, 7),
+                counterStore.value(slot, 8));
 
+        StringBuilder value = new StringBuilder();
         value.append(PerformanceAnalyzerMetrics.getJsonCurrentMilliSeconds())
                 .append(PerformanceAnalyzerMetrics.sMetricNewLineDelimitor)
                 .append(nodeStatsMetrics.serialize());
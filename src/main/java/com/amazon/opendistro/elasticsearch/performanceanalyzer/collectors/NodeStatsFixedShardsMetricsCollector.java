@@ -16,15 +16,17 @@
 package com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors;
 
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.config.PerformanceAnalyzerController;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.util.ShardRegistry;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.util.Utils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.elasticsearch.action.admin.indices.stats.CommonStatsFlags;
-import org.elasticsearch.action.admin.indices.stats.IndexShardStats;
 import org.elasticsearch.action.admin.indices.stats.ShardStats;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.ShardId;
@@ -47,26 +49,27 @@ import com.fasterxml.jackson.annotation.JsonProperty;
  */
 
 @SuppressWarnings("unchecked")
-public class NodeStatsFixedShardsMetricsCollector extends PerformanceAnalyzerMetricsCollector implements MetricsProcessor {
+public class NodeStatsFixedShardsMetricsCollector extends TunableMetricsCollector implements MetricsProcessor {
     public static final int SAMPLING_TIME_INTERVAL = MetricsConfiguration.CONFIG_MAP.get(
             NodeStatsAllShardsMetricsCollector.class).samplingInterval;
     private static final int KEYS_PATH_LENGTH = 2;
     private static final Logger LOG = LogManager.getLogger(NodeStatsFixedShardsMetricsCollector.class);
-    private HashMap<ShardId, IndexShard> currentShards;
-    private Iterator<HashMap.Entry<ShardId, IndexShard>> currentShardsIter;
+    private Map<ShardId, IndexShard> currentShards;
+    private Iterator<Map.Entry<ShardId, IndexShard>> currentShardsIter;
+    private final ShardStatsProbe probe = new ShardStatsProbe();
     private final PerformanceAnalyzerController controller;
 
     public NodeStatsFixedShardsMetricsCollector(final PerformanceAnalyzerController controller) {
         super(SAMPLING_TIME_INTERVAL, "NodeStatsMetrics");
-        currentShards = new HashMap<>();
+        currentShards = Collections.emptyMap();
         currentShardsIter = currentShards.entrySet().iterator();
         this.controller = controller;
     }
 
     private void populateCurrentShards() {
-        currentShards.clear();
-        currentShards = Utils.getShards();
+        currentShards = ShardRegistry.instance().getShards();
         currentShardsIter = currentShards.entrySet().iterator();
+        probe.retainShards(currentShards.keySet());
     }
 
     private Map<String, ValueCalculator> valueCalculators = new HashMap<String, ValueCalculator>() { {
@@ -128,6 +131,11 @@ public class NodeStatsFixedShardsMetricsCollector extends PerformanceAnalyzerMet
         return PerformanceAnalyzerMetrics.generatePath(startTime, PerformanceAnalyzerMetrics.sIndicesPath, keysPath[0], keysPath[1]);
     }
 
+    @Override
+    protected CollectorBudget.Priority getPriority() {
+        return CollectorBudget.Priority.LOW;
+    }
+
     @Override
     public void collectMetrics(long startTime) {
         IndicesService indicesService = ESResources.INSTANCE.getIndicesService();
@@ -141,30 +149,31 @@ public class NodeStatsFixedShardsMetricsCollector extends PerformanceAnalyzerMet
             if (!currentShardsIter.hasNext()) {
                 populateCurrentShards();
             }
+            List<IndexShard> shards = new ArrayList<>();
             for(int i = 0; i < controller.getNodeStatsShardsPerCollection(); i++){
                 if (!currentShardsIter.hasNext()) {
                     break;
                 }
-                IndexShard currentIndexShard = currentShardsIter.next().getValue();
-                IndexShardStats currentIndexShardStats = Utils.indexShardStats(indicesService,
-                        currentIndexShard, new CommonStatsFlags(CommonStatsFlags.Flag.Segments,
-                                CommonStatsFlags.Flag.Store,
-                                CommonStatsFlags.Flag.Indexing,
-                                CommonStatsFlags.Flag.Merge,
-                                CommonStatsFlags.Flag.Flush,
-                                CommonStatsFlags.Flag.Refresh,
-                                CommonStatsFlags.Flag.Recovery));
-                for (ShardStats shardStats : currentIndexShardStats.getShards()) {
-                    StringBuilder value = new StringBuilder();
-
-                    value.append(PerformanceAnalyzerMetrics.getJsonCurrentMilliSeconds());
-                    //- go through the list of metrics to be collected and emit
-                    value.append(PerformanceAnalyzerMetrics.sMetricNewLineDelimitor)
-                            .append(new NodeStatsMetricsFixedShardsPerCollectionStatus(shardStats).serialize());
-
-                    saveMetricValues(value.toString(), startTime, currentIndexShardStats.getShardId().getIndexName(),
-                            String.valueOf(currentIndexShardStats.getShardId().id()));
+                shards.add(currentShardsIter.next().getValue());
+            }
+            long[] values = new long[shards.size() * ShardStatsProbe.FIXED_VALUES];
+            boolean[] read = ShardStatsPool.INSTANCE.read(shards, (i, shard) ->
+                    probe.readFixedStats(shard, values, i * ShardStatsProbe.FIXED_VALUES));
+            for (int i = 0; i < read.length; i++) {
+                if (!read[i]) {
+                    continue;
                 }
+                ShardId shardId = shards.get(i).shardId();
+                StringBuilder value = new StringBuilder();
+
+                value.append(PerformanceAnalyzerMetrics.getJsonCurrentMilliSeconds());
+                //- go through the list of metrics to be collected and emit
+                value.append(PerformanceAnalyzerMetrics.sMetricNewLineDelimitor)
+                        .append(new NodeStatsMetricsFixedShardsPerCollectionStatus(
+                                values, i * ShardStatsProbe.FIXED_VALUES).serialize());
+
+                saveMetricValues(value.toString(), startTime, shardId.getIndexName(),
+                        String.valueOf(shardId.id()));
             }
         } catch (Exception ex) {
             LOG.debug("Exception in Collecting NodesStats Metrics: {} for startTime {} with ExceptionCode: {}",
@@ -237,6 +246,34 @@ public class NodeStatsFixedShardsMetricsCollector extends PerformanceAnalyzerMet
             this.shardSizeInBytes = calculate(ShardStatsValue.SHARD_SIZE_IN_BYTES);
         }
 
+        /** Creates the status from the values read by {@link ShardStatsProbe#readFixedStats}. */
+        public NodeStatsMetricsFixedShardsPerCollectionStatus(long[] values, int offset) {
+            super();
+            this.shardStats = null;
+
+            this.indexingThrottleTime = values[offset];
+            this.refreshCount = values[offset + 1];
+            this.refreshTime = values[offset + 2];
+            this.flushCount = values[offset + 3];
+            this.flushTime = values[offset + 4];
+            this.mergeCount = values[offset + 5];
+            this.mergeTime = values[offset + 6];
+            this.mergeCurrent = values[offset + 7];
+            this.indexBufferBytes = values[offset + 8];
+            this.segmentCount = values[offset + 9];
+            this.segmentsMemory = values[offset + 10];
+            this.termsMemory = values[offset + 11];
+            this.storedFieldsMemory = values[offset + 12];
+            this.termVectorsMemory = values[offset + 13];
+            this.normsMemory = values[offset + 14];
+            this.pointsMemory = values[offset + 15];
+            this.docValuesMemory = values[offset + 16];
+            this.indexWriterMemory = values[offset + 17];
+            this.versionMapMemory = values[offset + 18];
+            this.bitsetMemory = values[offset + 19];
+            this.shardSizeInBytes = values[offset + 20];
+        }
+
         private long calculate(ShardStatsValue nodeMetric) {
             return valueCalculators.get(nodeMetric.toString()).calculateValue(shardStats);
         }
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.listener.LatencyHistogram;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.listener.SearchLatencyAggregator;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.listener.SearchLatencyAggregator.Phase;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.listener.SearchLatencyAggregator.ShardLatencies;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.MetricsConfiguration;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.MetricsProcessor;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.PerformanceAnalyzerMetrics;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.Locale;
+import java.util.Map;
+import org.elasticsearch.index.shard.ShardId;
+
+/**
+ * Writes the shard query and fetch latency histograms accumulated by the {@link
+ * SearchLatencyAggregator}, one line per shard, phase and outcome, once per sampling interval.
+ * Latencies are in microseconds. Only registered in the "histogram" search listener mode.
+ */
+public class SearchLatencyCollector extends TunableMetricsCollector implements MetricsProcessor {
+    private static final int sTimeInterval = MetricsConfiguration.SAMPLING_INTERVAL;
+    private static final int KEYS_PATH_LENGTH = 0;
+    public static final String SEARCH_LATENCY_PATH = "search_latency";
+    private final StringBuilder value;
+
+    public SearchLatencyCollector() {
+        super(sTimeInterval, "SearchLatencyCollector");
+        value = new StringBuilder();
+    }
+
+    @Override
+    public void collectMetrics(long startTime) {
+        Map<ShardId, ShardLatencies> latencies = SearchLatencyAggregator.INSTANCE.flush();
+        if (latencies.isEmpty()) {
+            return;
+        }
+
+        //- Reusing the same StringBuilder across exectuions; so clearing before using
+        value.setLength(0);
+        value.append(PerformanceAnalyzerMetrics.getJsonCurrentMilliSeconds());
+        for (ShardLatencies shardLatencies : latencies.values()) {
+            for (Phase phase : Phase.values()) {
+                appendHistogram(shardLatencies, phase, false);
+                appendHistogram(shardLatencies, phase, true);
+            }
+        }
+
+        saveMetricValues(value.toString(), startTime);
+    }
+
+    private void appendHistogram(ShardLatencies shardLatencies, Phase phase, boolean failed) {
+        LatencyHistogram histogram = shardLatencies.get(phase, failed);
+        if (histogram == null) {
+            return;
+        }
+        value.append(PerformanceAnalyzerMetrics.sMetricNewLineDelimitor)
+                .append(new SearchLatencyStatus(shardLatencies.getShardId(), phase, failed, histogram).serialize());
+    }
+
+    @Override
+    public String getMetricsPath(long startTime, String... keysPath) {
+        // throw exception if keys.length is not equal to 0
+        if (keysPath.length != KEYS_PATH_LENGTH) {
+            throw new RuntimeException("keys length should be " + KEYS_PATH_LENGTH);
+        }
+
+        return PerformanceAnalyzerMetrics.generatePath(startTime, SEARCH_LATENCY_PATH);
+    }
+
+    public static class SearchLatencyStatus extends MetricStatus {
+        private final String indexName;
+        private final int shardId;
+        private final String phase;
+        private final boolean failed;
+        private final long count;
+        private final long sum;
+        private final long max;
+        private final long p50;
+        private final long p99;
+        private final long p999;
+        private final String buckets;
+
+        SearchLatencyStatus(ShardId shardId, Phase phase, boolean failed, LatencyHistogram histogram) {
+            this.indexName = shardId.getIndexName();
+            this.shardId = shardId.id();
+            this.phase = phase.name().toLowerCase(Locale.ROOT);
+            this.failed = failed;
+            this.count = histogram.getCount();
+            this.sum = histogram.getSum();
+            this.max = histogram.getMax();
+            this.p50 = histogram.getValueAtPercentile(50);
+            this.p99 = histogram.getValueAtPercentile(99);
+            this.p999 = histogram.getValueAtPercentile(99.9);
+            this.buckets = histogram.getBuckets();
+        }
+
+        @JsonProperty("IndexName")
+        public String getIndexName() {
+            return indexName;
+        }
+
+        @JsonProperty("ShardID")
+        public int getShardId() {
+            return shardId;
+        }
+
+        @JsonProperty("Phase")
+        public String getPhase() {
+            return phase;
+        }
+
+        @JsonProperty("Failed")
+        public boolean isFailed() {
+            return failed;
+        }
+
+        @JsonProperty("Count")
+        public long getCount() {
+            return count;
+        }
+
+        @JsonProperty("Sum")
+        public long getSum() {
+            return sum;
+        }
+
+        @JsonProperty("Max")
+        public long getMax() {
+            return max;
+        }
+
+        @JsonProperty("P50")
+        public long getP50() {
+            return p50;
+        }
+
+        @JsonProperty("P99")
+        public long getP99() {
+            return p99;
+        }
+
+        @JsonProperty("P999")
+        public long getP999() {
+            return p999;
+        }
+
+        /** The non empty buckets of the histogram, see {@link LatencyHistogram#getBuckets}. */
+        @JsonProperty("Buckets")
+        public String getBuckets() {
+            return buckets;
+        }
+    }
+}
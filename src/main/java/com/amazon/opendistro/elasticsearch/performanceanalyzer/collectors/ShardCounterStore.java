@@ -0,0 +1,254 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import org.elasticsearch.index.shard.ShardId;
+
+/**
+ * Columnar store of the per-shard values read by {@link NodeStatsAllShardsMetricsCollector}, which
+ * computes the difference of the counters between two runs without allocating per shard.
+ *
+ * <p>Each shard is given a dense slot, reused once the shard leaves the node, and each value is a
+ * {@code long[]} column indexed by slot. The values of the previous run are kept in a second set
+ * of columns, which is swapped with the current one at the start of each run instead of being
+ * copied. Counter columns report the difference with the previous run, or the absolute value for
+ * a shard that was not present then. Gauge columns always report the current value.
+ *
+ * <p>A run is {@link #beginCycle}, {@link #slot} and {@link #set} for each shard, then {@link
+ * #endCycle}, after which {@link #value} returns the values to report for the slots that are
+ * {@link #isReported reported}. A shard whose values could not be read in a run is {@link #retain
+ * retained}, so that its next difference is computed from the last values read.
+ *
+ * <p>With a {@link #setHeartbeat heartbeat}, a shard whose counters did not move and whose gauges
+ * did not change since the previous run is not reported either, unless it was last reported that
+ * many runs ago. New shards are always reported.
+ *
+ * <p>Not thread safe, it is only used by the thread of its collector.
+ */
+final class ShardCounterStore {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final boolean[] counters;
+    private final Map<ShardId, Integer> slots = new HashMap<>();
+    private ShardId[] shardIds;
+    // Run in which each slot was assigned, and last run in which it was set.
+    private long[] assignedCycle;
+    private long[] seenCycle;
+    private long[] retainedCycle;
+    private long[] reportedCycle;
+    private boolean[] reported;
+    private boolean[] changed;
+    private long[][] current;
+    private long[][] previous;
+    private long[][] values;
+    private int[] freeSlots;
+    private int freeCount;
+    private int highWaterMark;
+    private int seenCount;
+    private long cycle;
+    private int heartbeat = 0;
+
+    /** Creates a store whose column {@code i} is a counter if {@code counters[i]}, else a gauge. */
+    ShardCounterStore(boolean... counters) {
+        this.counters = counters.clone();
+        this.shardIds = new ShardId[INITIAL_CAPACITY];
+        this.assignedCycle = new long[INITIAL_CAPACITY];
+        this.seenCycle = new long[INITIAL_CAPACITY];
+        this.retainedCycle = new long[INITIAL_CAPACITY];
+        this.reportedCycle = new long[INITIAL_CAPACITY];
+        this.reported = new boolean[INITIAL_CAPACITY];
+        this.changed = new boolean[INITIAL_CAPACITY];
+        this.current = new long[counters.length][INITIAL_CAPACITY];
+        this.previous = new long[counters.length][INITIAL_CAPACITY];
+        this.values = new long[counters.length][INITIAL_CAPACITY];
+        this.freeSlots = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Sets the number of runs after which an unchanged shard is reported again, 0, the default,
+     * to report every shard in every run.
+     */
+    void setHeartbeat(int runs) {
+        this.heartbeat = runs;
+    }
+
+    void beginCycle() {
+        long[][] swap = previous;
+        previous = current;
+        current = swap;
+        seenCount = 0;
+        cycle++;
+    }
+
+    /** Returns the slot of the shard, assigning one if it is new, and marks it as seen. */
+    int slot(ShardId shardId) {
+        Integer slot = slots.get(shardId);
+        int s;
+        if (slot == null) {
+            s = freeCount > 0 ? freeSlots[--freeCount] : newSlot();
+            slots.put(shardId, s);
+            shardIds[s] = shardId;
+            assignedCycle[s] = cycle;
+        } else {
+            s = slot;
+        }
+        markSeen(s);
+        return s;
+    }
+
+    /**
+     * Keeps the last values read of a shard that could not be read in this run, without reporting
+     * it. Does nothing for a shard that is not in the store yet.
+     */
+    void retain(ShardId shardId) {
+        Integer slot = slots.get(shardId);
+        if (slot == null) {
+            return;
+        }
+        int s = slot;
+        markSeen(s);
+        retainedCycle[s] = cycle;
+        for (int column = 0; column < counters.length; column++) {
+            current[column][s] = previous[column][s];
+        }
+    }
+
+    void set(int slot, int column, long value) {
+        current[column][slot] = value;
+    }
+
+    /**
+     * Releases the slots of the shards that were not seen in this run, and computes the values to
+     * report for the others, and whether to report them.
+     */
+    void endCycle() {
+        if (seenCount < slots.size()) {
+            Iterator<Map.Entry<ShardId, Integer>> it = slots.entrySet().iterator();
+            while (it.hasNext()) {
+                int s = it.next().getValue();
+                if (seenCycle[s] != cycle) {
+                    it.remove();
+                    shardIds[s] = null;
+                    freeSlots[freeCount++] = s;
+                }
+            }
+        }
+        for (int column = 0; column < counters.length; column++) {
+            long[] cur = current[column];
+            long[] out = values[column];
+            if (!counters[column]) {
+                System.arraycopy(cur, 0, out, 0, highWaterMark);
+                continue;
+            }
+            long[] prev = previous[column];
+            for (int s = 0; s < highWaterMark; s++) {
+                out[s] = assignedCycle[s] < cycle ? Math.max(cur[s] - prev[s], 0) : cur[s];
+            }
+        }
+        for (int s = 0; s < highWaterMark; s++) {
+            reported[s] = shardIds[s] != null && retainedCycle[s] != cycle;
+        }
+        if (heartbeat > 0) {
+            suppressUnchanged();
+        }
+        for (int s = 0; s < highWaterMark; s++) {
+            if (reported[s]) {
+                reportedCycle[s] = cycle;
+            }
+        }
+    }
+
+    /** Returns one more than the highest slot in use, to iterate over the slots. */
+    int slotLimit() {
+        return highWaterMark;
+    }
+
+    /** Returns the shard of the slot, or null if the slot is free. */
+    ShardId shardId(int slot) {
+        return shardIds[slot];
+    }
+
+    /** Returns whether the slot holds a shard whose values were read in the last run. */
+    boolean isReported(int slot) {
+        return reported[slot];
+    }
+
+    /** Returns the value to report for the column of the slot, as of the last {@link #endCycle}. */
+    long value(int slot, int column) {
+        return values[column][slot];
+    }
+
+    int size() {
+        return slots.size();
+    }
+
+    private void suppressUnchanged() {
+        Arrays.fill(changed, 0, highWaterMark, false);
+        for (int column = 0; column < counters.length; column++) {
+            long[] out = values[column];
+            if (counters[column]) {
+                for (int s = 0; s < highWaterMark; s++) {
+                    changed[s] |= out[s] != 0;
+                }
+            } else {
+                long[] prev = previous[column];
+                for (int s = 0; s < highWaterMark; s++) {
+                    changed[s] |= out[s] != prev[s];
+                }
+            }
+        }
+        for (int s = 0; s < highWaterMark; s++) {
+            if (reported[s]
+                    && !changed[s]
+                    && assignedCycle[s] < cycle
+                    && cycle - reportedCycle[s] < heartbeat) {
+                reported[s] = false;
+            }
+        }
+    }
+
+    private void markSeen(int slot) {
+        if (seenCycle[slot] != cycle) {
+            seenCycle[slot] = cycle;
+            seenCount++;
+        }
+    }
+
+    private int newSlot() {
+        if (highWaterMark == shardIds.length) {
+            int capacity = shardIds.length * 2;
+            shardIds = Arrays.copyOf(shardIds, capacity);
+            assignedCycle = Arrays.copyOf(assignedCycle, capacity);
+            seenCycle = Arrays.copyOf(seenCycle, capacity);
+            retainedCycle = Arrays.copyOf(retainedCycle, capacity);
+            reportedCycle = Arrays.copyOf(reportedCycle, capacity);
+            reported = Arrays.copyOf(reported, capacity);
+            changed = Arrays.copyOf(changed, capacity);
+            freeSlots = Arrays.copyOf(freeSlots, capacity);
+            for (int column = 0; column < counters.length; column++) {
+                current[column] = Arrays.copyOf(current[column], capacity);
+                previous[column] = Arrays.copyOf(previous[column], capacity);
+                values[column] = Arrays.copyOf(values[column], capacity);
+            }
+        }
+        return highWaterMark++;
+    }
+}
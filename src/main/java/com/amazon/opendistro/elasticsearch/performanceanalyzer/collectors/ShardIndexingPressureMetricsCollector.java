@@ -40,7 +40,7 @@ import org.jooq.tools.json.ParseException;
 import java.lang.reflect.Field;
 import java.util.Map;
 
-public class ShardIndexingPressureMetricsCollector extends PerformanceAnalyzerMetricsCollector implements MetricsProcessor {
+public class ShardIndexingPressureMetricsCollector extends TunableMetricsCollector implements MetricsProcessor {
     public static final int SAMPLING_TIME_INTERVAL = MetricsConfiguration
         .CONFIG_MAP.get(ShardIndexingPressureMetricsCollector.class).samplingInterval;
     private static final int KEYS_PATH_LENGTH = 0;
@@ -40,7 +40,7 @@ import java.util.List;
 import static com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.AllMetrics.ShardType.SHARD_PRIMARY;
 import static com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.AllMetrics.ShardType.SHARD_REPLICA;
 
-public class ShardStateCollector extends PerformanceAnalyzerMetricsCollector implements MetricsProcessor {
+public class ShardStateCollector extends TunableMetricsCollector implements MetricsProcessor {
     public static final int SAMPLING_TIME_INTERVAL = MetricsConfiguration.CONFIG_MAP.get(ShardStateCollector.class).samplingInterval;
     private static final Logger LOG = LogManager.getLogger(ShardStateCollector.class);
     private static final int KEYS_PATH_LENGTH = 0;
@@ -56,6 +56,11 @@ public class ShardStateCollector extends PerformanceAnalyzerMetricsCollector imp
         this.configOverridesWrapper = configOverridesWrapper;
     }
 
+    @Override
+    protected CollectorBudget.Priority getPriority() {
+        return CollectorBudget.Priority.LOW;
+    }
+
     @Override
     public void collectMetrics( long startTime) {
         if(!controller.isCollectorEnabled(configOverridesWrapper, getCollectorName())) {
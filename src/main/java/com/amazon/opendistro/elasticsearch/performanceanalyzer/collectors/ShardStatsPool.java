@@ -0,0 +1,184 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.shard.IndexShard;
+
+/**
+ * Reads the stats of the shards for the node stats collectors, see {@link ShardStatsProbe}.
+ *
+ * <p>By default the stats are read one shard after the other on the thread of the collector. With
+ * threads configured, they are read by a bounded pool of low priority threads shared by the
+ * collectors, alongside the thread of the collector, so that collecting on a node with thousands
+ * of shards does not take time proportional to its number of shards. Each run then has a
+ * deadline: the shards whose stats could not be read in time are left out of the run and counted
+ * as {@link #DEADLINE_MISSED_METRIC}. The CPU time of the pool is charged to the collector, see
+ * {@link CollectorBudget#charge}.
+ */
+public enum ShardStatsPool {
+    INSTANCE;
+
+    /** Reads the stats of one shard on behalf of a collector. */
+    @FunctionalInterface
+    public interface ShardReader {
+        /**
+         * Reads the stats of the shard at the given position of the run, and returns whether they
+         * could be read. Called concurrently for different shards when the pool is enabled.
+         */
+        boolean read(int index, IndexShard shard) throws Exception;
+    }
+
+    private static final Logger LOG = LogManager.getLogger(ShardStatsPool.class);
+    public static final String DEADLINE_MISSED_METRIC = "ShardStatsDeadlineMissed";
+    public static final int MAX_THREADS = 8;
+    public static final long DEFAULT_DEADLINE_MILLIS = 2000;
+
+    private volatile ForkJoinPool pool = null;
+    private volatile long deadlineNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_DEADLINE_MILLIS);
+
+    /**
+     * Sets the number of threads of the pool, 0 to read the stats on the thread of the collector,
+     * and the deadline of each run. Meant to be called once when the plugin loads.
+     */
+    public synchronized void configure(int threads, TimeValue deadline) {
+        if (pool != null) {
+            pool.shutdown();
+        }
+        pool = threads > 0
+                ? new ForkJoinPool(threads, ShardStatsPool::newThread, null, false)
+                : null;
+        deadlineNanos = deadline.nanos();
+    }
+
+    /**
+     * Reads the stats of the shards, and returns whether the stats of each shard were read, at the
+     * same position as the shard. What the reader wrote for the other shards must be ignored.
+     */
+    public boolean[] read(List<IndexShard> shards, ShardReader reader) {
+        boolean[] read = new boolean[shards.size()];
+        ForkJoinPool executor = pool;
+        if (executor == null || shards.size() < 2) {
+            for (int i = 0; i < read.length; i++) {
+                read[i] = read(reader, i, shards.get(i));
+            }
+            return read;
+        }
+
+        Run run = new Run(shards, reader, System.nanoTime() + deadlineNanos);
+        int helpers = Math.min(executor.getParallelism(), shards.size() - 1);
+        CountDownLatch done = new CountDownLatch(helpers);
+        for (int i = 0; i < helpers; i++) {
+            executor.execute(
+                    () -> {
+                        try {
+                            run.work();
+                        } finally {
+                            done.countDown();
+                        }
+                    });
+        }
+        long start = CollectorBudget.currentThreadCpuNanos();
+        run.work();
+        long ownNanos = CollectorBudget.currentThreadCpuNanos() - start;
+        try {
+            done.await(Math.max(run.deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // The own work of the calling thread is already part of its CPU time.
+        CollectorBudget.charge(run.cpuNanos.get() - ownNanos);
+
+        int completed = 0;
+        for (int i = 0; i < read.length; i++) {
+            int state = run.states.get(i);
+            read[i] = state == Run.READ;
+            if (state != Run.PENDING) {
+                completed++;
+            }
+        }
+        int missed = read.length - completed;
+        if (missed > 0) {
+            LOG.debug("Stats of {} of {} shards missed the deadline", missed, read.length);
+            StatsCollector.instance().logMetric(DEADLINE_MISSED_METRIC);
+        }
+        return read;
+    }
+
+    private static boolean read(ShardReader reader, int index, IndexShard shard) {
+        try {
+            return reader.read(index, shard);
+        } catch (Exception ex) {
+            LOG.debug("Exception in reading the stats of shard {}: {}", shard.shardId(), ex);
+            StatsCollector.instance().logException(StatExceptionCode.NODESTATS_COLLECTION_ERROR);
+            return false;
+        }
+    }
+
+    private static ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+        ForkJoinWorkerThread thread =
+                ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("pa-shard-stats-" + thread.getPoolIndex());
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /** The shards of one run, claimed one at a time by the threads until the deadline. */
+    private static final class Run {
+        private static final int PENDING = 0;
+        private static final int READ = 1;
+        private static final int FAILED = 2;
+
+        private final List<IndexShard> shards;
+        private final ShardReader reader;
+        private final long deadline;
+        private final AtomicInteger next = new AtomicInteger();
+        // Set once the reader returns, which publishes what it wrote for the shard.
+        private final AtomicIntegerArray states;
+        private final AtomicLong cpuNanos = new AtomicLong();
+
+        private Run(List<IndexShard> shards, ShardReader reader, long deadline) {
+            this.shards = shards;
+            this.reader = reader;
+            this.deadline = deadline;
+            this.states = new AtomicIntegerArray(shards.size());
+        }
+
+        private void work() {
+            long start = CollectorBudget.currentThreadCpuNanos();
+            while (System.nanoTime() - deadline < 0) {
+                int i = next.getAndIncrement();
+                if (i >= shards.size()) {
+                    break;
+                }
+                states.set(i, read(reader, i, shards.get(i)) ? READ : FAILED);
+            }
+            cpuNanos.addAndGet(CollectorBudget.currentThreadCpuNanos() - start);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.util.Utils;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.elasticsearch.index.cache.query.QueryCacheStats;
+import org.elasticsearch.index.cache.request.RequestCacheStats;
+import org.elasticsearch.index.engine.SegmentsStats;
+import org.elasticsearch.index.fielddata.FieldDataStats;
+import org.elasticsearch.index.flush.FlushStats;
+import org.elasticsearch.index.merge.MergeStats;
+import org.elasticsearch.index.refresh.RefreshStats;
+import org.elasticsearch.index.shard.IndexShard;
+import org.elasticsearch.index.shard.IndexShardState;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.indices.IndicesQueryCache;
+
+/**
+ * Reads the values reported by the node stats collectors directly from the accessors of the
+ * {@link IndexShard}, instead of building a {@code CommonStats}, a {@code ShardStats} and an
+ * {@code IndexShardStats} for each shard, see {@link Utils#indexShardStats}. The values are
+ * written to a {@code long[]} at a given offset, in the order of the fields of the status of the
+ * collector.
+ *
+ * <p>The size of the store of a shard, which is computed from the files of the shard, is only read
+ * again once the shard was refreshed, flushed or merged since it was last read, which are the
+ * only operations of a started shard that change its files.
+ *
+ * <p>A probe can be used by several threads at a time, for different shards.
+ */
+final class ShardStatsProbe {
+    /** Number of values read by {@link #readCacheStats}. */
+    static final int CACHE_VALUES = 9;
+    /** Number of values read by {@link #readFixedStats}. */
+    static final int FIXED_VALUES = 21;
+
+    private final Map<ShardId, StoreSize> storeSizes = new ConcurrentHashMap<>();
+
+    /**
+     * Reads the query, fielddata and request cache values of the shard, in the order of the fields
+     * of {@link NodeStatsAllShardsMetricsCollector.NodeStatsMetricsAllShardsPerCollectionStatus}.
+     *
+     * @return false if the shard has no routing yet, in which case nothing is written.
+     */
+    static boolean readCacheStats(
+            IndicesQueryCache indicesQueryCache, IndexShard shard, long[] values, int offset) {
+        if (shard.routingEntry() == null) {
+            return false;
+        }
+        QueryCacheStats queryCache = indicesQueryCache.getStats(shard.shardId());
+        FieldDataStats fieldData = shard.fieldDataStats();
+        RequestCacheStats requestCache = shard.requestCache().stats();
+        values[offset] = queryCache.getHitCount();
+        values[offset + 1] = queryCache.getMissCount();
+        values[offset + 2] = queryCache.getMemorySizeInBytes();
+        values[offset + 3] = fieldData.getEvictions();
+        values[offset + 4] = fieldData.getMemorySizeInBytes();
+        values[offset + 5] = requestCache.getHitCount();
+        values[offset + 6] = requestCache.getMissCount();
+        values[offset + 7] = requestCache.getEvictions();
+        values[offset + 8] = requestCache.getMemorySizeInBytes();
+        return true;
+    }
+
+    /**
+     * Reads the indexing, refresh, flush, merge, segment and store values of the shard, in the
+     * order of the fields of {@link
+     * NodeStatsFixedShardsMetricsCollector.NodeStatsMetricsFixedShardsPerCollectionStatus}.
+     *
+     * @return false if the shard has no routing yet, in which case nothing is written.
+     */
+    boolean readFixedStats(IndexShard shard, long[] values, int offset) {
+        if (shard.routingEntry() == null) {
+            return false;
+        }
+        RefreshStats refresh = shard.refreshStats();
+        FlushStats flush = shard.flushStats();
+        MergeStats merge = shard.mergeStats();
+        SegmentsStats segments = shard.segmentStats(false, false);
+        IndexShardState state = shard.state();
+        values[offset] = shard.indexingStats().getTotal().getThrottleTime().millis();
+        values[offset + 1] = refresh.getTotal();
+        values[offset + 2] = refresh.getTotalTimeInMillis();
+        values[offset + 3] = flush.getTotal();
+        values[offset + 4] = flush.getTotalTimeInMillis();
+        values[offset + 5] = merge.getTotal();
+        values[offset + 6] = merge.getTotalTimeInMillis();
+        values[offset + 7] = merge.getCurrent();
+        values[offset + 8] = Utils.CAN_WRITE_INDEX_BUFFER_STATES.contains(state)
+                ? shard.getWritingBytes() + shard.getIndexBufferRAMBytesUsed()
+                : 0;
+        values[offset + 9] = segments.getCount();
+        values[offset + 10] = segments.getMemoryInBytes();
+        values[offset + 11] = segments.getTermsMemoryInBytes();
+        values[offset + 12] = segments.getStoredFieldsMemoryInBytes();
+        // Reported as the terms memory by the collector, see its status.
+        values[offset + 13] = segments.getTermsMemoryInBytes();
+        values[offset + 14] = segments.getNormsMemoryInBytes();
+        values[offset + 15] = segments.getPointsMemoryInBytes();
+        values[offset + 16] = segments.getDocValuesMemoryInBytes();
+        values[offset + 17] = segments.getIndexWriterMemoryInBytes();
+        values[offset + 18] = segments.getVersionMapMemoryInBytes();
+        values[offset + 19] = segments.getBitsetMemoryInBytes();
+        values[offset + 20] =
+                storeSize(shard, state, refresh.getTotal() + flush.getTotal() + merge.getTotal());
+        return true;
+    }
+
+    /** Forgets the store sizes of the shards that are no longer on the node. */
+    void retainShards(Set<ShardId> shardIds) {
+        storeSizes.keySet().retainAll(shardIds);
+    }
+
+    private long storeSize(IndexShard shard, IndexShardState state, long changes) {
+        StoreSize storeSize = storeSizes.computeIfAbsent(shard.shardId(), id -> new StoreSize());
+        synchronized (storeSize) {
+            if (state != IndexShardState.STARTED || storeSize.changes != changes) {
+                storeSize.sizeInBytes = shard.storeStats().getSizeInBytes();
+                // The files of a shard that is not started yet change without being counted.
+                storeSize.changes = state == IndexShardState.STARTED ? changes : -1;
+            }
+            return storeSize.sizeInBytes;
+        }
+    }
+
+    private static final class StoreSize {
+        // Sum of the refreshes, flushes and merges of the shard when its size was read.
+        private long changes = -1;
+        private long sizeInBytes;
+    }
+}
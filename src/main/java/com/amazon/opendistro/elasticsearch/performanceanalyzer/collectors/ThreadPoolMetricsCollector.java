@@ -36,7 +36,7 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.ThreadPoolExecutor;
 
-public class ThreadPoolMetricsCollector extends PerformanceAnalyzerMetricsCollector implements MetricsProcessor {
+public class ThreadPoolMetricsCollector extends TunableMetricsCollector implements MetricsProcessor {
     private static final Logger LOG = LogManager.getLogger(ThreadPoolMetricsCollector.class);
     public static final int SAMPLING_TIME_INTERVAL = MetricsConfiguration.CONFIG_MAP.get(ThreadPoolMetricsCollector.class).samplingInterval;
     private static final int KEYS_PATH_LENGTH = 0;
@@ -49,6 +49,11 @@ public class ThreadPoolMetricsCollector extends PerformanceAnalyzerMetricsCollec
         statsRecordMap = new HashMap<>();
     }
 
+    @Override
+    protected CollectorBudget.Priority getPriority() {
+        return CollectorBudget.Priority.HIGH;
+    }
+
     @Override
     public void collectMetrics(long startTime) {
         if (ESResources.INSTANCE.getThreadPool() == null) {
@@ -65,10 +70,10 @@ public class ThreadPoolMetricsCollector extends PerformanceAnalyzerMetricsCollec
             String threadPoolName = stats.getName();
             if (statsRecordMap.containsKey(threadPoolName)) {
                 ThreadPoolStatsRecord lastRecord = statsRecordMap.get(threadPoolName);
-                // if the timestamp in previous record is greater than 15s (3 * intervals),
+                // if the timestamp in previous record is greater than 3 intervals (15s by default),
                 // then the scheduler might hang or freeze due to long GC etc. We simply drop
                 // previous record here and set rejectionDelta to 0.
-                if (startTime - lastRecord.getTimestamp() <= SAMPLING_TIME_INTERVAL * 3) {
+                if (startTime - lastRecord.getTimestamp() <= getTimeInterval() * 3) {
                     rejectionDelta = stats.getRejected() - lastRecord.getRejected();
                     // we might not run into this as rejection is a LongAdder which never decrement its count.
                     // regardless, let's set it to 0 to be safe.
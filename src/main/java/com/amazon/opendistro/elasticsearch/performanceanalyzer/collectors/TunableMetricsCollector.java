@@ -0,0 +1,61 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors;
+
+/**
+ * Base class of the collectors of this plugin, whose interval can be overridden at runtime, see
+ * {@link CollectorIntervals}, and stretched to keep the collectors within their CPU budget, see
+ * {@link CollectorBudget}.
+ *
+ * <p>The {@link ScheduledMetricCollectorsExecutor} reads {@link #getTimeInterval} each time it
+ * reschedules a collector, so both take effect from the next run.
+ */
+public abstract class TunableMetricsCollector extends PerformanceAnalyzerMetricsCollector {
+
+    protected TunableMetricsCollector(int timeInterval, String collectorName) {
+        super(timeInterval, collectorName);
+    }
+
+    /** Returns the priority of the collector when it has to be stretched. */
+    protected CollectorBudget.Priority getPriority() {
+        return CollectorBudget.Priority.NORMAL;
+    }
+
+    /** Returns the interval of the collector, before it is stretched. */
+    public int getConfiguredTimeInterval() {
+        return CollectorIntervals.INSTANCE.get(getClass(), super.getTimeInterval());
+    }
+
+    @Override
+    public int getTimeInterval() {
+        return CollectorBudget.INSTANCE.stretch(getClass(), getConfiguredTimeInterval());
+    }
+
+    @Override
+    public void run() {
+        long start = CollectorBudget.currentThreadCpuNanos();
+        try {
+            super.run();
+        } finally {
+            CollectorBudget.INSTANCE.record(
+                    getClass(),
+                    getPriority(),
+                    getConfiguredTimeInterval(),
+                    CollectorBudget.currentThreadCpuNanos() - start);
+        }
+    }
+}
@@ -19,7 +19,9 @@ import com.amazon.opendistro.elasticsearch.performanceanalyzer.ESResources;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.PerformanceAnalyzerPlugin;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors.ScheduledMetricCollectorsExecutor;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.config.overrides.ConfigOverridesWrapper;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.listener.SearchEventMode;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.PerformanceAnalyzerMetrics;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.writer.RequestEventSampler;
 import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
@@ -49,6 +51,8 @@ public class PerformanceAnalyzerController {
     private static final boolean loggingEnabledDefaultValue = false;
     private static final boolean batchMetricsEnabledDefaultValue = false;
     private final ScheduledMetricCollectorsExecutor scheduledMetricCollectorsExecutor;
+    private final RequestEventSampler requestEventSampler = new RequestEventSampler();
+    private volatile SearchEventMode searchEventMode = SearchEventMode.START_FINISH;
 
     public PerformanceAnalyzerController(final ScheduledMetricCollectorsExecutor scheduledMetricCollectorsExecutor) {
         this.scheduledMetricCollectorsExecutor = scheduledMetricCollectorsExecutor;
@@ -110,6 +114,62 @@ public class PerformanceAnalyzerController {
         shardsPerCollection = value;
     }
 
+    /**
+     * Reads how the search listener reports the shard query and fetch phases
+     * @return the search event mode
+     */
+    public SearchEventMode getSearchEventMode() {
+        return searchEventMode;
+    }
+
+    /**
+     * Updates how the search listener reports the shard query and fetch phases
+     * @param mode the search event mode
+     */
+    public void updateSearchEventMode(SearchEventMode mode) {
+        searchEventMode = mode;
+    }
+
+    /**
+     * Returns the sampler deciding which requests emit start and finish events.
+     * @return the request event sampler
+     */
+    public RequestEventSampler getRequestEventSampler() {
+        return requestEventSampler;
+    }
+
+    /**
+     * Reads the fixed rate at which requests are sampled
+     * @return the sampling rate, 1 when every request is sampled
+     */
+    public double getRequestSamplingRate() {
+        return requestEventSampler.getSamplingRate();
+    }
+
+    /**
+     * Updates the fixed rate at which requests are sampled
+     * @param value the sampling rate, in (0, 1]
+     */
+    public void updateRequestSamplingRate(double value) {
+        requestEventSampler.setSamplingRate(value);
+    }
+
+    /**
+     * Reads the budget of request events per second used by adaptive sampling
+     * @return the budget, 0 when adaptive sampling is disabled
+     */
+    public int getRequestEventsPerSecondBudget() {
+        return requestEventSampler.getEventsPerSecondBudget();
+    }
+
+    /**
+     * Updates the budget of request events per second used by adaptive sampling
+     * @param value the budget, 0 to disable adaptive sampling
+     */
+    public void updateRequestEventsPerSecondBudget(int value) {
+        requestEventSampler.setEventsPerSecondBudget(value);
+    }
+
     /**
      * Updates the state of performance analyzer(writer and engine).
      *
@@ -15,6 +15,7 @@
 
 package com.amazon.opendistro.elasticsearch.performanceanalyzer.config.setting;
 
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors.CollectorIntervals;
 import org.elasticsearch.common.settings.Setting;
 
 public final class PerformanceAnalyzerClusterSettings {
@@ -61,4 +62,19 @@ public final class PerformanceAnalyzerClusterSettings {
             Setting.Property.NodeScope,
             Setting.Property.Dynamic
     );
+
+    /**
+     * Cluster setting overriding the sampling interval of some collectors, as a comma separated
+     * list of collector:millis pairs, see {@link CollectorIntervals}.
+     */
+    public static final Setting<String> COLLECTOR_INTERVALS_SETTING = new Setting<>(
+            "cluster.metadata.perf_analyzer.collector_intervals",
+            "",
+            value -> {
+                CollectorIntervals.parse(value);
+                return value;
+            },
+            Setting.Property.NodeScope,
+            Setting.Property.Dynamic
+    );
 }
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.config.setting;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors.CollectorBudget;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors.ShardStatsPool;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.listener.SearchEventMode;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.writer.EventLogQueueProcessor;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.writer.EventStagingQueue;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.writer.LoadSheddingPolicy;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.writer.PartitionedEventLogWriter;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.unit.TimeValue;
+
+/**
+ * Static settings read from elasticsearch.yml when the plugin is loaded. Unlike the
+ * {@link PerformanceAnalyzerClusterSettings}, they cannot be changed on a running node.
+ */
+public final class PerformanceAnalyzerNodeSettings {
+    /**
+     * Number of threads writing the event log. With more than one, the events are partitioned by
+     * a hash of their metric family and thread id or index name, and each partition is written by
+     * its own thread, see {@link PartitionedEventLogWriter}.
+     */
+    public static final Setting<Integer> EVENT_LOG_WRITER_THREADS_SETTING =
+            Setting.intSetting(
+                    "perf_analyzer.event_log.writer_threads",
+                    1,
+                    1,
+                    PartitionedEventLogWriter.MAX_PARTITIONS,
+                    Setting.Property.NodeScope);
+
+    /**
+     * Number of time buckets, counting the current one, that still accept events. Events that
+     * reach the writer later than that, after a long GC pause for instance, are dropped. Each
+     * additional bucket delays by one sampling interval the moment the reader sees a bucket.
+     *
+     * <p>The window is anchored at the wall clock of the queue purger, not at the timestamps of
+     * the events, so this only bounds lateness relative to the purge ticks. A purge that runs
+     * after a pause seals every bucket that left the window meanwhile, several at once.
+     */
+    public static final Setting<Integer> EVENT_LOG_OPEN_BUCKETS_SETTING =
+            Setting.intSetting(
+                    "perf_analyzer.event_log.open_buckets",
+                    EventLogQueueProcessor.DEFAULT_OPEN_BUCKETS,
+                    EventLogQueueProcessor.MIN_OPEN_BUCKETS,
+                    12,
+                    Setting.Property.NodeScope);
+
+    /**
+     * Stages the events of the request threads in per-thread ring buffers drained by the writer,
+     * instead of writing them to the shared metric queue, see {@link EventStagingQueue}.
+     */
+    public static final Setting<Boolean> EVENT_STAGING_ENABLED_SETTING =
+            Setting.boolSetting(
+                    "perf_analyzer.event_staging.enabled", false, Setting.Property.NodeScope);
+
+    /**
+     * Number of events each request thread can stage between two runs of the writer. Events
+     * emitted while the ring of the thread is full are dropped.
+     */
+    public static final Setting<Integer> EVENT_STAGING_RING_CAPACITY_SETTING =
+            Setting.intSetting(
+                    "perf_analyzer.event_staging.ring_capacity",
+                    EventStagingQueue.DEFAULT_RING_CAPACITY,
+                    16,
+                    65536,
+                    Setting.Property.NodeScope);
+
+    /**
+     * Number of events in the metric queue at which the backlog of the writer is considered full
+     * by the {@link LoadSheddingPolicy}.
+     */
+    public static final Setting<Integer> LOAD_SHEDDING_QUEUE_CAPACITY_SETTING =
+            Setting.intSetting(
+                    "perf_analyzer.load_shedding.queue_capacity",
+                    LoadSheddingPolicy.DEFAULT_QUEUE_CAPACITY,
+                    1000,
+                    Setting.Property.NodeScope);
+
+    /** Fill ratio of the backlog from which shard request events are sampled down. */
+    public static final Setting<Double> LOAD_SHEDDING_LOW_WATER_MARK_SETTING =
+            Setting.doubleSetting(
+                    "perf_analyzer.load_shedding.low_water_mark",
+                    LoadSheddingPolicy.DEFAULT_LOW_WATER_MARK,
+                    0,
+                    1,
+                    Setting.Property.NodeScope);
+
+    /**
+     * Fill ratio of the backlog from which all shard request events are shed, and request events
+     * are sampled down.
+     */
+    public static final Setting<Double> LOAD_SHEDDING_HIGH_WATER_MARK_SETTING =
+            Setting.doubleSetting(
+                    "perf_analyzer.load_shedding.high_water_mark",
+                    LoadSheddingPolicy.DEFAULT_HIGH_WATER_MARK,
+                    0,
+                    1,
+                    Setting.Property.NodeScope);
+
+    /**
+     * Set once the reader of the metrics location parses what the "single_event" and "histogram"
+     * search listener modes write, the phase events and the search latency histograms. The reader
+     * shipped with the RCA agent only pairs start and finish events, so it is off by default.
+     */
+    public static final Setting<Boolean> SEARCH_EVENT_READER_ENABLED_SETTING =
+            Setting.boolSetting(
+                    "perf_analyzer.search_listener.event_reader.enabled",
+                    false,
+                    Setting.Property.NodeScope);
+
+    /**
+     * How the search listener reports the shard query and fetch phases, "start_finish" for an event
+     * at the start and the finish of each phase, "single_event" for one event per phase with its
+     * duration, or "histogram" for latency histograms per shard written once per sampling interval.
+     * The modes other than "start_finish" are rejected unless
+     * {@link #SEARCH_EVENT_READER_ENABLED_SETTING} is set, as the reader would silently drop
+     * their metrics otherwise.
+     */
+    public static final Setting<SearchEventMode> SEARCH_EVENT_MODE_SETTING = new Setting<>(
+            "perf_analyzer.search_listener.mode",
+            SearchEventMode.START_FINISH.toString(),
+            SearchEventMode::fromString,
+            new Setting.Validator<SearchEventMode>() {
+                @Override
+                public void validate(SearchEventMode value) {
+                }
+
+                @Override
+                public void validate(SearchEventMode value, Map<Setting<?>, Object> settings) {
+                    if (value != SearchEventMode.START_FINISH
+                            && !(Boolean) settings.get(SEARCH_EVENT_READER_ENABLED_SETTING)) {
+                        throw new IllegalArgumentException("Search listener mode [" + value
+                                + "] needs a reader that parses its events, set ["
+                                + SEARCH_EVENT_READER_ENABLED_SETTING.getKey()
+                                + "] once the reader does");
+                    }
+                }
+
+                @Override
+                public Iterator<Setting<?>> settings() {
+                    return Collections.<Setting<?>>singletonList(
+                            SEARCH_EVENT_READER_ENABLED_SETTING).iterator();
+                }
+            },
+            Setting.Property.NodeScope
+    );
+
+    /**
+     * CPU time the collectors of the plugin may use, as a fraction of one core, 0.01 for 1% of a
+     * core for instance. When they use more, the intervals of the most expensive, lowest priority
+     * collectors are stretched, see {@link CollectorBudget}. 0, the default, disables the budget.
+     */
+    public static final Setting<Double> COLLECTOR_CPU_BUDGET_SETTING =
+            Setting.doubleSetting(
+                    "perf_analyzer.collectors.cpu_budget", 0, 0, 1, Setting.Property.NodeScope);
+
+    /**
+     * Number of threads reading the stats of the shards for the node stats collectors, see {@link
+     * ShardStatsPool}. 0, the default, reads them on the thread of each collector.
+     */
+    public static final Setting<Integer> COLLECTOR_SHARD_STATS_THREADS_SETTING =
+            Setting.intSetting(
+                    "perf_analyzer.collectors.shard_stats.threads",
+                    0,
+                    0,
+                    ShardStatsPool.MAX_THREADS,
+                    Setting.Property.NodeScope);
+
+    /**
+     * Time the shard stats threads have to read the stats of the shards in each run of a node stats
+     * collector. The shards not read in time are left out of the run.
+     */
+    public static final Setting<TimeValue> COLLECTOR_SHARD_STATS_DEADLINE_SETTING =
+            Setting.timeSetting(
+                    "perf_analyzer.collectors.shard_stats.deadline",
+                    TimeValue.timeValueMillis(ShardStatsPool.DEFAULT_DEADLINE_MILLIS),
+                    TimeValue.timeValueMillis(100),
+                    Setting.Property.NodeScope);
+
+    /**
+     * Number of runs of the all shards node stats collector after which a shard whose cache values
+     * did not change is reported again. Unchanged shards are left out of the other runs, which
+     * shrinks the event log of nodes with many idle shards, but leaves gaps in their metrics. 0,
+     * the default, reports every shard in every run.
+     */
+    public static final Setting<Integer> NODE_STATS_HEARTBEAT_RUNS_SETTING =
+            Setting.intSetting(
+                    "perf_analyzer.collectors.node_stats.heartbeat_runs",
+                    0,
+                    0,
+                    720,
+                    Setting.Property.NodeScope);
+
+    private PerformanceAnalyzerNodeSettings() {}
+}
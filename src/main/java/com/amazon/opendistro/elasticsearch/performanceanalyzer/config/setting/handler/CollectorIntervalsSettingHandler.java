@@ -0,0 +1,83 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.config.setting.handler;
+
+import static com.amazon.opendistro.elasticsearch.performanceanalyzer.config.setting.PerformanceAnalyzerClusterSettings.COLLECTOR_INTERVALS_SETTING;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors.CollectorIntervals;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.config.setting.ClusterSettingListener;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.config.setting.ClusterSettingsManager;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+public class CollectorIntervalsSettingHandler implements ClusterSettingListener<String> {
+    private static final Logger LOG = LogManager.getLogger(CollectorIntervalsSettingHandler.class);
+
+    private final ClusterSettingsManager clusterSettingsManager;
+
+    public CollectorIntervalsSettingHandler(final ClusterSettingsManager clusterSettingsManager) {
+        this.clusterSettingsManager = clusterSettingsManager;
+    }
+
+    /**
+     * Updates the collector intervals setting across the cluster. The given intervals are merged
+     * into the current ones, and a null interval removes the override of its collector.
+     *
+     * @param intervals The desired intervals in milliseconds, by collector name.
+     * @throws IllegalArgumentException if an interval is out of range.
+     */
+    public void updateCollectorIntervalsSetting(final Map<String, Integer> intervals) {
+        Map<String, Integer> merged = new LinkedHashMap<>(CollectorIntervals.INSTANCE.getAll());
+        for (Map.Entry<String, Integer> entry : intervals.entrySet()) {
+            if (entry.getValue() == null) {
+                merged.remove(entry.getKey());
+            } else {
+                merged.put(entry.getKey(), entry.getValue());
+            }
+        }
+        clusterSettingsManager.updateSetting(
+                COLLECTOR_INTERVALS_SETTING, CollectorIntervals.format(merged));
+    }
+
+    /**
+     * Handler that gets called when there is a new value for the setting that this listener
+     * is listening to.
+     *
+     * @param newSettingValue The value of the new setting.
+     */
+    @Override
+    public void onSettingUpdate(final String newSettingValue) {
+        if (newSettingValue == null) {
+            return;
+        }
+        try {
+            CollectorIntervals.INSTANCE.update(CollectorIntervals.parse(newSettingValue));
+        } catch (IllegalArgumentException e) {
+            LOG.error("Unable to apply received collector intervals: " + newSettingValue, e);
+        }
+    }
+
+    /**
+     * Gets the current(last seen) collector intervals.
+     * @return the intervals in milliseconds, by collector name.
+     */
+    public Map<String, Integer> getCollectorIntervals() {
+        return CollectorIntervals.INSTANCE.getAll();
+    }
+}
@@ -19,10 +19,12 @@ import static java.util.Arrays.asList;
 import static java.util.Collections.unmodifiableList;
 
 import java.io.IOException;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.config.PluginSettings;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.config.setting.handler.CollectorIntervalsSettingHandler;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.config.setting.handler.NodeStatsSettingHandler;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -53,6 +55,7 @@ public class PerformanceAnalyzerClusterConfigAction extends BaseRestHandler {
     public static final String BATCH_METRICS_CLUSTER_CONFIG_PATH = "/_opendistro/_performanceanalyzer/batch/cluster/config";
     public static final String ENABLED = "enabled";
     public static final String SHARDS_PER_COLLECTION = "shardsPerCollection";
+    public static final String COLLECTOR_INTERVALS = "collectorIntervals";
 
     private static final List<Route> ROUTES =
         unmodifiableList(
@@ -68,12 +71,15 @@ public class PerformanceAnalyzerClusterConfigAction extends BaseRestHandler {
 
     private final PerformanceAnalyzerClusterSettingHandler clusterSettingHandler;
     private final NodeStatsSettingHandler nodeStatsSettingHandler;
+    private final CollectorIntervalsSettingHandler collectorIntervalsSettingHandler;
 
     public PerformanceAnalyzerClusterConfigAction(final Settings settings, final RestController restController,
                                                   final PerformanceAnalyzerClusterSettingHandler clusterSettingHandler,
-                                                  final NodeStatsSettingHandler nodeStatsSettingHandler) {
+                                                  final NodeStatsSettingHandler nodeStatsSettingHandler,
+                                                  final CollectorIntervalsSettingHandler collectorIntervalsSettingHandler) {
         this.clusterSettingHandler = clusterSettingHandler;
         this.nodeStatsSettingHandler = nodeStatsSettingHandler;
+        this.collectorIntervalsSettingHandler = collectorIntervalsSettingHandler;
     }
 
 
@@ -109,6 +115,25 @@ public class PerformanceAnalyzerClusterConfigAction extends BaseRestHandler {
     protected RestChannelConsumer prepareRequest(final RestRequest request, final NodeClient client) throws IOException {
         if (request.method() == RestRequest.Method.POST && request.content().length() > 0) {
             Map<String, Object> map = XContentHelper.convertToMap(request.content(), false, XContentType.JSON).v2();
+            // update collector intervals if exists, e.g. {"NodeStatsAllShardsMetricsCollector": 30000},
+            // a null interval restores the default interval of the collector. They go first, as they are
+            // the only values that can be rejected, so a rejected request changes nothing.
+            if (map.get(COLLECTOR_INTERVALS) instanceof Map) {
+                Map<String, Integer> intervals = new LinkedHashMap<>();
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) map.get(COLLECTOR_INTERVALS)).entrySet()) {
+                    Object interval = entry.getValue();
+                    if (interval != null && !(interval instanceof Integer)) {
+                        return getChannelConsumerWithError("Error: invalid interval for collector [" + entry.getKey() + "]: " + interval);
+                    }
+                    intervals.put(String.valueOf(entry.getKey()), (Integer) interval);
+                }
+                try {
+                    collectorIntervalsSettingHandler.updateCollectorIntervalsSetting(intervals);
+                } catch (IllegalArgumentException e) {
+                    return getChannelConsumerWithError("Error: " + e.getMessage());
+                }
+            }
+
             Object value = map.get(ENABLED);
             LOG.debug("PerformanceAnalyzer:Value (Object) Received as Part of Request: {} current value: {}", value,
                     clusterSettingHandler.getCurrentClusterSettingValue());
@@ -139,6 +164,7 @@ public class PerformanceAnalyzerClusterConfigAction extends BaseRestHandler {
                 builder.startObject();
                 builder.field(CURRENT, clusterSettingHandler.getCurrentClusterSettingValue());
                 builder.field(SHARDS_PER_COLLECTION, nodeStatsSettingHandler.getNodeStatsSetting());
+                builder.field(COLLECTOR_INTERVALS, collectorIntervalsSettingHandler.getCollectorIntervals());
                 builder.field(BATCH_METRICS_RETENTION_PERIOD_MINUTES, PluginSettings.instance().getBatchMetricsRetentionPeriodMinutes());
                 builder.endObject();
                 channel.sendResponse(new BytesRestResponse(RestStatus.OK, builder));
@@ -147,4 +173,14 @@ public class PerformanceAnalyzerClusterConfigAction extends BaseRestHandler {
             }
         };
     }
+
+    private RestChannelConsumer getChannelConsumerWithError(String error) {
+        return restChannel -> {
+            XContentBuilder builder = restChannel.newErrorBuilder();
+            builder.startObject();
+            builder.field(error);
+            builder.endObject();
+            restChannel.sendResponse(new BytesRestResponse(RestStatus.BAD_REQUEST, builder));
+        };
+    }
 }
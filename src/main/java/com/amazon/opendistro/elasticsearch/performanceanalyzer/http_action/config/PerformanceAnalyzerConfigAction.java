@@ -51,6 +51,8 @@ public class PerformanceAnalyzerConfigAction extends BaseRestHandler {
     public static final String PA_LOGGING_ENABLED = "loggingEnabled";
     public static final String BATCH_METRICS_ENABLED = "batchMetricsEnabled";
     public static final String BATCH_METRICS_RETENTION_PERIOD_MINUTES = "batchMetricsRetentionPeriodMinutes";
+    public static final String REQUEST_SAMPLING_RATE = "requestSamplingRate";
+    public static final String REQUEST_EVENTS_PER_SECOND_BUDGET = "requestEventsPerSecondBudget";
     public static final String PERFORMANCE_ANALYZER_CONFIG_ACTION = "PerformanceAnalyzer_Config_Action";
     public static final String RCA_CONFIG_PATH = "/_opendistro/_performanceanalyzer/rca/config";
     public static final String PA_CONFIG_PATH = "/_opendistro/_performanceanalyzer/config";
@@ -94,6 +96,15 @@ public class PerformanceAnalyzerConfigAction extends BaseRestHandler {
         if (request.method() == RestRequest.Method.POST && request.content().length() > 0) {
             // Let's try to find the name from the body
             Map<String, Object> map = XContentHelper.convertToMap(request.content(), false).v2();
+            // Request sampling is validated as a whole before anything is applied.
+            Object samplingRateValue = map.get(REQUEST_SAMPLING_RATE);
+            if (map.containsKey(REQUEST_SAMPLING_RATE) && !isValidSamplingRate(samplingRateValue)) {
+                return getChannelConsumerWithError("Error: " + REQUEST_SAMPLING_RATE + " must be a number in (0, 1]");
+            }
+            Object budgetValue = map.get(REQUEST_EVENTS_PER_SECOND_BUDGET);
+            if (map.containsKey(REQUEST_EVENTS_PER_SECOND_BUDGET) && !(budgetValue instanceof Integer && (Integer) budgetValue >= 0)) {
+                return getChannelConsumerWithError("Error: " + REQUEST_EVENTS_PER_SECOND_BUDGET + " must be a non negative integer");
+            }
             Object value = map.get(ENABLED);
             LOG.debug("PerformanceAnalyzer:Value (Object) Received as Part of Request: {} current value: {}", value,
                     performanceAnalyzerController.isPerformanceAnalyzerEnabled());
@@ -136,6 +147,13 @@ public class PerformanceAnalyzerConfigAction extends BaseRestHandler {
                     performanceAnalyzerController.updateNodeStatsShardsPerCollection((Integer)shardPerCollectionValue);
                 }
             }
+            // update request sampling if exists
+            if (samplingRateValue != null) {
+                performanceAnalyzerController.updateRequestSamplingRate(((Number) samplingRateValue).doubleValue());
+            }
+            if (budgetValue != null) {
+                performanceAnalyzerController.updateRequestEventsPerSecondBudget((Integer) budgetValue);
+            }
         }
 
         return channel -> {
@@ -148,6 +166,8 @@ public class PerformanceAnalyzerConfigAction extends BaseRestHandler {
                 builder.field(SHARDS_PER_COLLECTION, performanceAnalyzerController.getNodeStatsShardsPerCollection());
                 builder.field(BATCH_METRICS_ENABLED, performanceAnalyzerController.isBatchMetricsEnabled());
                 builder.field(BATCH_METRICS_RETENTION_PERIOD_MINUTES, PluginSettings.instance().getBatchMetricsRetentionPeriodMinutes());
+                builder.field(REQUEST_SAMPLING_RATE, performanceAnalyzerController.getRequestSamplingRate());
+                builder.field(REQUEST_EVENTS_PER_SECOND_BUDGET, performanceAnalyzerController.getRequestEventsPerSecondBudget());
                 builder.endObject();
                 channel.sendResponse(new BytesRestResponse(RestStatus.OK, builder));
             } catch (IOException ioe) {
@@ -161,6 +181,11 @@ public class PerformanceAnalyzerConfigAction extends BaseRestHandler {
         return PERFORMANCE_ANALYZER_CONFIG_ACTION;
     }
 
+    private static boolean isValidSamplingRate(Object value) {
+        double samplingRate = value instanceof Number ? ((Number) value).doubleValue() : Double.NaN;
+        return samplingRate > 0 && samplingRate <= 1;
+    }
+
     private RestChannelConsumer getChannelConsumerWithError(String error) {
         return restChannel -> {
             XContentBuilder builder = restChannel.newErrorBuilder();
@@ -17,8 +17,10 @@ package com.amazon.opendistro.elasticsearch.performanceanalyzer.listener;
 
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors.StatExceptionCode;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors.StatsCollector;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.listener.SearchLatencyAggregator.Phase;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import java.util.concurrent.TimeUnit;
 import org.elasticsearch.index.shard.SearchOperationListener;
 import org.elasticsearch.search.internal.SearchContext;
 
@@ -27,13 +29,28 @@ import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.AllMetric
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.AllMetrics.CommonMetric;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.MetricsProcessor;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.PerformanceAnalyzerMetrics;
-import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.ThreadIDUtil;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.util.NativeThreadId;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.writer.EventPriority;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.writer.EventStagingQueue;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.writer.RequestEventEncoder;
 
 public class PerformanceAnalyzerSearchListener implements SearchOperationListener, SearchListener, MetricsProcessor {
     private static final Logger LOG = LogManager.getLogger(PerformanceAnalyzerSearchListener.class);
 
     private static final SearchListener NO_OP_SEARCH_LISTENER = new NoOpSearchListener();
     private static final int KEYS_PATH_LENGTH = 4;
+    // File name of the single event written per phase, in place of the start and finish ones.
+    public static final String PHASE_FILE_NAME = "phase";
+    public static final String TOOK_IN_NANOS = "took_in_nanos";
+    private static final String START_TIME_KEY = RequestEventEncoder.key(CommonMetric.START_TIME);
+    private static final String FINISH_TIME_KEY = RequestEventEncoder.key(CommonMetric.FINISH_TIME);
+    private static final String TOOK_IN_NANOS_KEY = RequestEventEncoder.key(TOOK_IN_NANOS);
+    private static final String FAILED_KEY = RequestEventEncoder.key(CommonDimension.FAILED);
+    private static final String INDEX_NAME_KEY = RequestEventEncoder.key(CommonDimension.INDEX_NAME);
+    private static final String SHARD_ID_KEY = RequestEventEncoder.key(CommonDimension.SHARD_ID);
+    // The start and finish of a query or fetch phase are reported on the same search thread, so
+    // what is known when the phase starts is kept here until it finishes.
+    private static final ThreadLocal<PhaseState> PHASE_STATE = ThreadLocal.withInitial(PhaseState::new);
     private final PerformanceAnalyzerController controller;
     private SearchListener searchListener;
 
@@ -113,76 +130,177 @@ public class PerformanceAnalyzerSearchListener implements SearchOperationListene
 
     @Override
     public void preQueryPhase(SearchContext searchContext) {
+        SearchEventMode mode = controller.getSearchEventMode();
+        if (mode != SearchEventMode.START_FINISH) {
+            PHASE_STATE.get().startNanos = System.nanoTime();
+            if (mode == SearchEventMode.HISTOGRAM) {
+                return;
+            }
+        }
         long currTime = System.currentTimeMillis();
-        saveMetricValues(
-                generateStartMetrics(currTime, searchContext.request().shardId().getIndexName(), searchContext.request().shardId().getId()),
+        double weight = samplePhase(currTime);
+        if (weight == 0 || mode == SearchEventMode.SINGLE_EVENT) {
+            return;
+        }
+        EventStagingQueue.INSTANCE.emit(this,
+                generateStartMetrics(currTime,
+                        searchContext.request().shardId().getIndexName(), searchContext.request().shardId().getId(), weight),
                 currTime,
-                String.valueOf(ThreadIDUtil.INSTANCE.getNativeCurrentThreadId()),
+                NativeThreadId.currentAsString(),
                 PerformanceAnalyzerMetrics.sShardQueryPath, String.valueOf(searchContext.id()), PerformanceAnalyzerMetrics.START_FILE_NAME);
     }
 
     @Override
     public void queryPhase(SearchContext searchContext, long tookInNanos) {
+        SearchEventMode mode = controller.getSearchEventMode();
+        if (mode == SearchEventMode.HISTOGRAM) {
+            recordLatency(searchContext, Phase.QUERY, false, tookInNanos);
+            return;
+        }
+        double weight = PHASE_STATE.get().weight;
+        if (weight == 0) {
+            return;
+        }
+        if (mode == SearchEventMode.SINGLE_EVENT) {
+            emitPhaseMetrics(searchContext, PerformanceAnalyzerMetrics.sShardQueryPath, false, tookInNanos, weight);
+            return;
+        }
         long currTime = System.currentTimeMillis();
-        saveMetricValues(
+        EventStagingQueue.INSTANCE.emit(this,
                 generateFinishMetrics(currTime, false,
-                        searchContext.request().shardId().getIndexName(), searchContext.request().shardId().getId()),
+                        searchContext.request().shardId().getIndexName(), searchContext.request().shardId().getId(), weight),
                 currTime,
-                String.valueOf(ThreadIDUtil.INSTANCE.getNativeCurrentThreadId()),
+                NativeThreadId.currentAsString(),
                 PerformanceAnalyzerMetrics.sShardQueryPath, String.valueOf(searchContext.id()),
                 PerformanceAnalyzerMetrics.FINISH_FILE_NAME);
     }
 
     @Override
     public void failedQueryPhase(SearchContext searchContext) {
+        SearchEventMode mode = controller.getSearchEventMode();
+        if (mode == SearchEventMode.HISTOGRAM) {
+            recordLatency(searchContext, Phase.QUERY, true, System.nanoTime() - PHASE_STATE.get().startNanos);
+            return;
+        }
+        double weight = PHASE_STATE.get().weight;
+        if (weight == 0) {
+            return;
+        }
+        if (mode == SearchEventMode.SINGLE_EVENT) {
+            emitPhaseMetrics(searchContext, PerformanceAnalyzerMetrics.sShardQueryPath, true,
+                    System.nanoTime() - PHASE_STATE.get().startNanos, weight);
+            return;
+        }
         long currTime = System.currentTimeMillis();
-        saveMetricValues(
+        EventStagingQueue.INSTANCE.emit(this,
                 generateFinishMetrics(currTime, true,
-                        searchContext.request().shardId().getIndexName(), searchContext.request().shardId().getId()),
+                        searchContext.request().shardId().getIndexName(), searchContext.request().shardId().getId(), weight),
                 currTime,
-                String.valueOf(ThreadIDUtil.INSTANCE.getNativeCurrentThreadId()),
+                NativeThreadId.currentAsString(),
                 PerformanceAnalyzerMetrics.sShardQueryPath, String.valueOf(searchContext.id()),
                 PerformanceAnalyzerMetrics.FINISH_FILE_NAME);
     }
 
     @Override
     public void preFetchPhase(SearchContext searchContext) {
+        SearchEventMode mode = controller.getSearchEventMode();
+        if (mode != SearchEventMode.START_FINISH) {
+            PHASE_STATE.get().startNanos = System.nanoTime();
+            if (mode == SearchEventMode.HISTOGRAM) {
+                return;
+            }
+        }
         long currTime = System.currentTimeMillis();
-        saveMetricValues(
-                generateStartMetrics(currTime, searchContext.request().shardId().getIndexName(), searchContext.request().shardId().getId()),
+        double weight = samplePhase(currTime);
+        if (weight == 0 || mode == SearchEventMode.SINGLE_EVENT) {
+            return;
+        }
+        EventStagingQueue.INSTANCE.emit(this,
+                generateStartMetrics(currTime,
+                        searchContext.request().shardId().getIndexName(), searchContext.request().shardId().getId(), weight),
                 currTime,
-                String.valueOf(ThreadIDUtil.INSTANCE.getNativeCurrentThreadId()),
+                NativeThreadId.currentAsString(),
                 PerformanceAnalyzerMetrics.sShardFetchPath, String.valueOf(searchContext.id()), PerformanceAnalyzerMetrics.START_FILE_NAME);
     }
 
     @Override
     public void fetchPhase(SearchContext searchContext, long tookInNanos) {
+        SearchEventMode mode = controller.getSearchEventMode();
+        if (mode == SearchEventMode.HISTOGRAM) {
+            recordLatency(searchContext, Phase.FETCH, false, tookInNanos);
+            return;
+        }
+        double weight = PHASE_STATE.get().weight;
+        if (weight == 0) {
+            return;
+        }
+        if (mode == SearchEventMode.SINGLE_EVENT) {
+            emitPhaseMetrics(searchContext, PerformanceAnalyzerMetrics.sShardFetchPath, false, tookInNanos, weight);
+            return;
+        }
         long currTime = System.currentTimeMillis();
-        saveMetricValues(
+        EventStagingQueue.INSTANCE.emit(this,
                 generateFinishMetrics(currTime, false,
-                        searchContext.request().shardId().getIndexName(), searchContext.request().shardId().getId()),
+                        searchContext.request().shardId().getIndexName(), searchContext.request().shardId().getId(), weight),
                 currTime,
-                String.valueOf(ThreadIDUtil.INSTANCE.getNativeCurrentThreadId()),
+                NativeThreadId.currentAsString(),
                 PerformanceAnalyzerMetrics.sShardFetchPath, String.valueOf(searchContext.id()),
                 PerformanceAnalyzerMetrics.FINISH_FILE_NAME);
     }
 
     @Override
     public void failedFetchPhase(SearchContext searchContext) {
+        SearchEventMode mode = controller.getSearchEventMode();
+        if (mode == SearchEventMode.HISTOGRAM) {
+            recordLatency(searchContext, Phase.FETCH, true, System.nanoTime() - PHASE_STATE.get().startNanos);
+            return;
+        }
+        double weight = PHASE_STATE.get().weight;
+        if (weight == 0) {
+            return;
+        }
+        if (mode == SearchEventMode.SINGLE_EVENT) {
+            emitPhaseMetrics(searchContext, PerformanceAnalyzerMetrics.sShardFetchPath, true,
+                    System.nanoTime() - PHASE_STATE.get().startNanos, weight);
+            return;
+        }
         long currTime = System.currentTimeMillis();
-        saveMetricValues(
+        EventStagingQueue.INSTANCE.emit(this,
                 generateFinishMetrics(currTime, true,
-                        searchContext.request().shardId().getIndexName(), searchContext.request().shardId().getId()),
+                        searchContext.request().shardId().getIndexName(), searchContext.request().shardId().getId(), weight),
                 currTime,
-                String.valueOf(ThreadIDUtil.INSTANCE.getNativeCurrentThreadId()),
+                NativeThreadId.currentAsString(),
                 PerformanceAnalyzerMetrics.sShardFetchPath, String.valueOf(searchContext.id()),
                 PerformanceAnalyzerMetrics.FINISH_FILE_NAME);
     }
 
+    private void emitPhaseMetrics(SearchContext searchContext, String phasePath, boolean failed, long tookInNanos, double weight) {
+        long currTime = System.currentTimeMillis();
+        EventStagingQueue.INSTANCE.emit(this,
+                generatePhaseMetrics(currTime, tookInNanos, failed,
+                        searchContext.request().shardId().getIndexName(), searchContext.request().shardId().getId(), weight),
+                currTime,
+                NativeThreadId.currentAsString(),
+                phasePath, String.valueOf(searchContext.id()), PHASE_FILE_NAME);
+    }
+
+    private static void recordLatency(SearchContext searchContext, Phase phase, boolean failed, long tookInNanos) {
+        SearchLatencyAggregator.INSTANCE.record(searchContext.request().shardId(), phase, failed, tookInNanos);
+    }
+
+    private double samplePhase(long startTime) {
+        double weight = controller.getRequestEventSampler().sample(startTime);
+        if (weight > 0 && !EventStagingQueue.INSTANCE.admit(EventPriority.SHARD_REQUEST)) {
+            weight = 0;
+        }
+        PHASE_STATE.get().weight = weight;
+        return weight;
+    }
+
     @SuppressWarnings("checkstyle:magicnumber")
     @Override
     public String getMetricsPath(long startTime, String... keysPath) {
-        // throw exception if keys.length is not equal to 4 (Keys should be threadID, SearchType, ShardSearchID, start/finish)
+        // throw exception if keys.length is not equal to 4 (Keys should be threadID, SearchType, ShardSearchID, start/finish/phase)
         if (keysPath.length != KEYS_PATH_LENGTH) {
             throw new RuntimeException("keys length should be " + KEYS_PATH_LENGTH);
         }
@@ -192,24 +310,53 @@ public class PerformanceAnalyzerSearchListener implements SearchOperationListene
     }
 
     public static String generateStartMetrics(long startTime, String indexName, int shardId) {
-        return new StringBuilder().append(PerformanceAnalyzerMetrics.getCurrentTimeMetric())
-                .append(PerformanceAnalyzerMetrics.sMetricNewLineDelimitor).append(CommonMetric.START_TIME.toString())
-                .append(PerformanceAnalyzerMetrics.sKeyValueDelimitor).append(startTime)
-                .append(PerformanceAnalyzerMetrics.sMetricNewLineDelimitor).append(CommonDimension.INDEX_NAME.toString())
-                .append(PerformanceAnalyzerMetrics.sKeyValueDelimitor).append(indexName)
-                .append(PerformanceAnalyzerMetrics.sMetricNewLineDelimitor).append(CommonDimension.SHARD_ID.toString())
-                .append(PerformanceAnalyzerMetrics.sKeyValueDelimitor).append(shardId).toString();
+        return generateStartMetrics(startTime, indexName, shardId, 1);
+    }
+
+    static String generateStartMetrics(long startTime, String indexName, int shardId, double weight) {
+        return RequestEventEncoder.start()
+                .append(START_TIME_KEY, startTime)
+                .append(INDEX_NAME_KEY, indexName)
+                .append(SHARD_ID_KEY, shardId)
+                .encode(weight);
     }
 
     public static String generateFinishMetrics(long finishTime, boolean failed, String indexName, int shardId) {
-        return new StringBuilder().append(PerformanceAnalyzerMetrics.getCurrentTimeMetric())
-                .append(PerformanceAnalyzerMetrics.sMetricNewLineDelimitor).append(CommonMetric.FINISH_TIME.toString())
-                .append(PerformanceAnalyzerMetrics.sKeyValueDelimitor).append(finishTime)
-                .append(PerformanceAnalyzerMetrics.sMetricNewLineDelimitor).append(CommonDimension.FAILED.toString())
-                .append(PerformanceAnalyzerMetrics.sKeyValueDelimitor).append(failed)
-                .append(PerformanceAnalyzerMetrics.sMetricNewLineDelimitor).append(CommonDimension.INDEX_NAME.toString())
-                .append(PerformanceAnalyzerMetrics.sKeyValueDelimitor).append(indexName)
-                .append(PerformanceAnalyzerMetrics.sMetricNewLineDelimitor).append(CommonDimension.SHARD_ID.toString())
-                .append(PerformanceAnalyzerMetrics.sKeyValueDelimitor).append(shardId).toString();
+        return generateFinishMetrics(finishTime, failed, indexName, shardId, 1);
+    }
+
+    static String generateFinishMetrics(long finishTime, boolean failed, String indexName, int shardId, double weight) {
+        return RequestEventEncoder.start()
+                .append(FINISH_TIME_KEY, finishTime)
+                .append(FAILED_KEY, failed)
+                .append(INDEX_NAME_KEY, indexName)
+                .append(SHARD_ID_KEY, shardId)
+                .encode(weight);
+    }
+
+    /**
+     * The single event written for a phase in {@link SearchEventMode#SINGLE_EVENT} mode. The start time is derived from the
+     * duration measured by Elasticsearch, so it is only as accurate as the clock in milliseconds.
+     */
+    public static String generatePhaseMetrics(long finishTime, long tookInNanos, boolean failed, String indexName, int shardId) {
+        return generatePhaseMetrics(finishTime, tookInNanos, failed, indexName, shardId, 1);
+    }
+
+    static String generatePhaseMetrics(long finishTime, long tookInNanos, boolean failed, String indexName, int shardId,
+                                       double weight) {
+        return RequestEventEncoder.start()
+                .append(START_TIME_KEY, finishTime - TimeUnit.NANOSECONDS.toMillis(tookInNanos))
+                .append(FINISH_TIME_KEY, finishTime)
+                .append(TOOK_IN_NANOS_KEY, tookInNanos)
+                .append(FAILED_KEY, failed)
+                .append(INDEX_NAME_KEY, indexName)
+                .append(SHARD_ID_KEY, shardId)
+                .encode(weight);
+    }
+
+    private static final class PhaseState {
+        // Sampling weight of the phase, 0 if its events are not emitted.
+        private double weight = 1;
+        private long startNanos;
     }
 }
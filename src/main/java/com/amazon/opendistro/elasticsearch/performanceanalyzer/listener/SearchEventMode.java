@@ -0,0 +1,48 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.listener;
+
+import java.util.Locale;
+
+/** How the search listener reports the shard query and fetch phases. */
+public enum SearchEventMode {
+    /** A start and a finish event per phase, paired by the reader. */
+    START_FINISH,
+    /**
+     * A single event per phase, written when it finishes, with the duration in nanoseconds
+     * measured by Elasticsearch.
+     */
+    SINGLE_EVENT,
+    /**
+     * No event per phase, the latencies are aggregated in memory by the {@link
+     * SearchLatencyAggregator} and written once per sampling interval.
+     */
+    HISTOGRAM;
+
+    public static SearchEventMode fromString(String value) {
+        try {
+            return valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown search event mode [" + value + "]", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.listener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.elasticsearch.index.shard.ShardId;
+
+/**
+ * Accumulates the latencies of the shard query and fetch phases into a {@link LatencyHistogram} per
+ * shard, phase and outcome, when the search listener runs in {@link SearchEventMode#HISTOGRAM}
+ * mode. The histograms are handed over and reset by {@link #flush} once per sampling interval.
+ */
+public enum SearchLatencyAggregator {
+    INSTANCE;
+
+    public enum Phase {
+        QUERY,
+        FETCH
+    }
+
+    private volatile Map<ShardId, ShardLatencies> latencies = new ConcurrentHashMap<>();
+
+    public void record(ShardId shardId, Phase phase, boolean failed, long tookInNanos) {
+        Map<ShardId, ShardLatencies> current = latencies;
+        ShardLatencies shardLatencies = current.get(shardId);
+        if (shardLatencies == null) {
+            shardLatencies = current.computeIfAbsent(shardId, ShardLatencies::new);
+        }
+        shardLatencies.histogram(phase, failed).record(tookInNanos / 1000);
+    }
+
+    /**
+     * Returns the latencies recorded since the previous flush, and starts new histograms. A phase
+     * finishing while the histograms are swapped may be recorded in the returned ones after they
+     * were read, and is then lost.
+     */
+    public Map<ShardId, ShardLatencies> flush() {
+        Map<ShardId, ShardLatencies> flushed = latencies;
+        latencies = new ConcurrentHashMap<>();
+        return flushed;
+    }
+
+    /** The histograms of one shard, allocated on the first latency of each phase and outcome. */
+    public static class ShardLatencies {
+        private final ShardId shardId;
+        private final AtomicReferenceArray<LatencyHistogram> histograms =
+                new AtomicReferenceArray<>(Phase.values().length * 2);
+
+        ShardLatencies(ShardId shardId) {
+            this.shardId = shardId;
+        }
+
+        public ShardId getShardId() {
+            return shardId;
+        }
+
+        /** Returns the histogram of the phase and outcome, or null if none was recorded. */
+        public LatencyHistogram get(Phase phase, boolean failed) {
+            return histograms.get(index(phase, failed));
+        }
+
+        LatencyHistogram histogram(Phase phase, boolean failed) {
+            int index = index(phase, failed);
+            LatencyHistogram histogram = histograms.get(index);
+            if (histogram == null) {
+                histograms.compareAndSet(index, null, new LatencyHistogram());
+                histogram = histograms.get(index);
+            }
+            return histogram;
+        }
+
+        private static int index(Phase phase, boolean failed) {
+            return phase.ordinal() * 2 + (failed ? 1 : 0);
+        }
+    }
+}
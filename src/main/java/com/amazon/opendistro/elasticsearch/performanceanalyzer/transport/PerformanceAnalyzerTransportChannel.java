@@ -16,52 +16,70 @@
 package com.amazon.opendistro.elasticsearch.performanceanalyzer.transport;
 
 import java.io.IOException;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.elasticsearch.transport.TransportChannel;
 import org.elasticsearch.transport.TransportResponse;
 
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors.StatsCollector;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.AllMetrics.ShardBulkDimension;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.AllMetrics.ShardBulkMetric;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.MetricsProcessor;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.PerformanceAnalyzerMetrics;
-import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.ThreadIDUtil;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.util.NativeThreadId;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.util.RequestIdGenerator;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.writer.EventStagingQueue;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.writer.RequestEventEncoder;
 
 public class PerformanceAnalyzerTransportChannel implements TransportChannel, MetricsProcessor {
     private static final Logger LOG = LogManager.getLogger(PerformanceAnalyzerTransportChannel.class);
     private static final int KEYS_PATH_LENGTH = 3;
-    private static final AtomicLong UNIQUE_ID = new AtomicLong(0);
+    public static final String DOUBLE_COMPLETION_METRIC = "ShardBulkChannelDoubleCompletion";
+    private static final AtomicReferenceFieldUpdater<PerformanceAnalyzerTransportChannel, String> ID =
+            AtomicReferenceFieldUpdater.newUpdater(PerformanceAnalyzerTransportChannel.class, String.class, "id");
+    private static final String START_TIME_KEY = RequestEventEncoder.key(ShardBulkMetric.START_TIME);
+    private static final String FINISH_TIME_KEY = RequestEventEncoder.key(ShardBulkMetric.FINISH_TIME);
+    private static final String ITEM_COUNT_KEY = RequestEventEncoder.key(ShardBulkMetric.ITEM_COUNT);
+    private static final String INDEX_NAME_KEY = RequestEventEncoder.key(ShardBulkDimension.INDEX_NAME);
+    private static final String SHARD_ID_KEY = RequestEventEncoder.key(ShardBulkDimension.SHARD_ID);
+    private static final String PRIMARY_KEY = RequestEventEncoder.key(ShardBulkDimension.PRIMARY);
+    private static final String EXCEPTION_KEY = RequestEventEncoder.key(ShardBulkDimension.EXCEPTION);
+    private static final String FAILED_KEY = RequestEventEncoder.key(ShardBulkDimension.FAILED);
 
     private TransportChannel original;
     private String indexName;
     private int shardId;
     private boolean primary;
-    private String id;
+    // Cleared by the first response, which keeps the channel as small as it was without the check.
+    private volatile String id;
     private String threadID;
+    private double weight = 1;
 
     void set(TransportChannel original, long startTime, String indexName, int shardId, int itemCount, boolean bPrimary) {
+        set(original, startTime, indexName, shardId, itemCount, bPrimary, 1);
+    }
+
+    void set(TransportChannel original, long startTime, String indexName, int shardId, int itemCount, boolean bPrimary,
+             double weight) {
         this.original = original;
-        this.id = String.valueOf(UNIQUE_ID.getAndIncrement());
+        this.weight = weight;
         this.indexName = indexName;
         this.shardId = shardId;
         this.primary = bPrimary;
-        this.threadID = String.valueOf(ThreadIDUtil.INSTANCE.getNativeCurrentThreadId());
-
-        StringBuilder value = new StringBuilder().append(PerformanceAnalyzerMetrics.getCurrentTimeMetric())
-                .append(PerformanceAnalyzerMetrics.sMetricNewLineDelimitor).append(ShardBulkMetric.START_TIME.toString())
-                .append(PerformanceAnalyzerMetrics.sKeyValueDelimitor).append(startTime)
-                .append(PerformanceAnalyzerMetrics.sMetricNewLineDelimitor).append(ShardBulkMetric.ITEM_COUNT.toString())
-                .append(PerformanceAnalyzerMetrics.sKeyValueDelimitor).append(itemCount)
-                .append(PerformanceAnalyzerMetrics.sMetricNewLineDelimitor).append(ShardBulkDimension.INDEX_NAME.toString())
-                .append(PerformanceAnalyzerMetrics.sKeyValueDelimitor).append(indexName)
-                .append(PerformanceAnalyzerMetrics.sMetricNewLineDelimitor).append(ShardBulkDimension.SHARD_ID.toString())
-                .append(PerformanceAnalyzerMetrics.sKeyValueDelimitor).append(shardId)
-                .append(PerformanceAnalyzerMetrics.sMetricNewLineDelimitor).append(ShardBulkDimension.PRIMARY.toString())
-                .append(PerformanceAnalyzerMetrics.sKeyValueDelimitor).append(bPrimary);
-
-        saveMetricValues(value.toString(), startTime, threadID, id, PerformanceAnalyzerMetrics.START_FILE_NAME);
+        this.threadID = NativeThreadId.currentAsString();
+        this.id = String.valueOf(RequestIdGenerator.next());
+
+        String value = RequestEventEncoder.start()
+                .append(START_TIME_KEY, startTime)
+                .append(ITEM_COUNT_KEY, itemCount)
+                .append(INDEX_NAME_KEY, indexName)
+                .append(SHARD_ID_KEY, shardId)
+                .append(PRIMARY_KEY, bPrimary)
+                .encode(weight);
+
+        EventStagingQueue.INSTANCE.emit(this, value, startTime, threadID, id, PerformanceAnalyzerMetrics.START_FILE_NAME);
     }
 
     @Override
@@ -77,38 +95,42 @@ public class PerformanceAnalyzerTransportChannel implements TransportChannel, Me
 
     @Override
     public void sendResponse(TransportResponse response) throws IOException {
-        emitMetricsFinish(null);
+        complete(null);
         original.sendResponse(response);
     }
 
     @Override
     public void sendResponse(Exception exception) throws IOException {
-        emitMetricsFinish(exception);
+        complete(exception);
         original.sendResponse(exception);
     }
 
-    private void emitMetricsFinish(Exception exception) {
+    /** Emits the finish event on the first response only, and counts the others. */
+    private void complete(Exception exception) {
+        String requestId = id;
+        if (requestId == null || !ID.compareAndSet(this, requestId, null)) {
+            StatsCollector.instance().logMetric(DOUBLE_COMPLETION_METRIC);
+            return;
+        }
+        emitMetricsFinish(requestId, exception);
+    }
+
+    private void emitMetricsFinish(String id, Exception exception) {
         long currTime = System.currentTimeMillis();
-        StringBuilder value = new StringBuilder().append(PerformanceAnalyzerMetrics.getCurrentTimeMetric())
-                .append(PerformanceAnalyzerMetrics.sMetricNewLineDelimitor).append(ShardBulkMetric.FINISH_TIME.toString())
-                .append(PerformanceAnalyzerMetrics.sKeyValueDelimitor).append(currTime)
-                .append(PerformanceAnalyzerMetrics.sMetricNewLineDelimitor).append(ShardBulkDimension.INDEX_NAME.toString())
-                .append(PerformanceAnalyzerMetrics.sKeyValueDelimitor).append(indexName)
-                .append(PerformanceAnalyzerMetrics.sMetricNewLineDelimitor).append(ShardBulkDimension.SHARD_ID.toString())
-                .append(PerformanceAnalyzerMetrics.sKeyValueDelimitor).append(shardId)
-                .append(PerformanceAnalyzerMetrics.sMetricNewLineDelimitor).append(ShardBulkDimension.PRIMARY.toString())
-                .append(PerformanceAnalyzerMetrics.sKeyValueDelimitor).append(primary);
+        RequestEventEncoder encoder = RequestEventEncoder.start()
+                .append(FINISH_TIME_KEY, currTime)
+                .append(INDEX_NAME_KEY, indexName)
+                .append(SHARD_ID_KEY, shardId)
+                .append(PRIMARY_KEY, primary);
         if (exception != null) {
-            value.append(PerformanceAnalyzerMetrics.sMetricNewLineDelimitor).append(ShardBulkDimension.EXCEPTION.toString())
-                    .append(PerformanceAnalyzerMetrics.sKeyValueDelimitor).append(exception.getClass().getName());
-            value.append(PerformanceAnalyzerMetrics.sMetricNewLineDelimitor).append(ShardBulkDimension.FAILED.toString())
-                    .append(PerformanceAnalyzerMetrics.sKeyValueDelimitor).append(true);
+            encoder.append(EXCEPTION_KEY, exception.getClass().getName())
+                    .append(FAILED_KEY, true);
         } else {
-            value.append(PerformanceAnalyzerMetrics.sMetricNewLineDelimitor).append(ShardBulkDimension.FAILED.toString())
-                    .append(PerformanceAnalyzerMetrics.sKeyValueDelimitor).append(false);
+            encoder.append(FAILED_KEY, false);
         }
 
-        saveMetricValues(value.toString(), currTime, threadID, id, PerformanceAnalyzerMetrics.FINISH_FILE_NAME);
+        EventStagingQueue.INSTANCE.emit(this, encoder.encode(weight),
+                currTime, threadID, id, PerformanceAnalyzerMetrics.FINISH_FILE_NAME);
     }
 
     //This function is called from the security plugin using reflection. Do not
@@ -126,4 +148,5 @@ public class PerformanceAnalyzerTransportChannel implements TransportChannel, Me
         return PerformanceAnalyzerMetrics.generatePath(startTime, PerformanceAnalyzerMetrics.sThreadsPath,
                 keysPath[0], PerformanceAnalyzerMetrics.sShardBulkPath, keysPath[1], keysPath[2]);
     }
+
 }
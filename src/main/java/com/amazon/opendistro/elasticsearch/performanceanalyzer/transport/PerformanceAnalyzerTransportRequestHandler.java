@@ -28,6 +28,8 @@ import org.elasticsearch.transport.TransportRequest;
 import org.elasticsearch.transport.TransportRequestHandler;
 
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.config.PerformanceAnalyzerController;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.writer.EventPriority;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.writer.EventStagingQueue;
 
 public class PerformanceAnalyzerTransportRequestHandler<T extends TransportRequest> implements TransportRequestHandler<T> {
     private static final Logger LOG = LogManager.getLogger(PerformanceAnalyzerTransportRequestHandler.class);
@@ -81,17 +83,24 @@ public class PerformanceAnalyzerTransportRequestHandler<T extends TransportReque
             return channel;
         }
 
+        long startTime = System.currentTimeMillis();
+        double weight = controller.getRequestEventSampler().sample(startTime);
+        if (weight == 0 || !EventStagingQueue.INSTANCE.admit(EventPriority.SHARD_REQUEST)) {
+            return channel;
+        }
+
         BulkShardRequest bsr = (BulkShardRequest) transportRequest;
         PerformanceAnalyzerTransportChannel performanceanalyzerChannel = new PerformanceAnalyzerTransportChannel();
 
         try {
             performanceanalyzerChannel.set(
                     channel,
-                    System.currentTimeMillis(),
+                    startTime,
                     bsr.index(),
                     bsr.shardId().id(),
                     bsr.items().length,
-                    bPrimary);
+                    bPrimary,
+                    weight);
         } catch (Exception ex) {
             if (!logOnce) {
                 LOG.error(ex);
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.util;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.ThreadIDUtil;
+
+/**
+ * Caches the native id of the calling thread, and its rendering used in the event paths, for the
+ * request interceptors which run on every search and write thread invocation.
+ *
+ * <p>The native id of a thread does not change during its life, so it is only looked up once per
+ * thread with {@link ThreadIDUtil}. A thread that is not known yet to the thread list resolves
+ * to -1, which is not cached, so that it is looked up again on the next call.
+ */
+public final class NativeThreadId {
+    private static final long UNKNOWN = -1;
+    private static final ThreadLocal<NativeThreadId> CURRENT =
+            ThreadLocal.withInitial(NativeThreadId::new);
+
+    private long id = UNKNOWN;
+    private String idString;
+
+    private NativeThreadId() {}
+
+    /** Returns the native id of the calling thread, or -1 if it is not known yet. */
+    public static long current() {
+        return CURRENT.get().resolve();
+    }
+
+    /** Returns the native id of the calling thread as written in the event paths. */
+    public static String currentAsString() {
+        NativeThreadId current = CURRENT.get();
+        long id = current.resolve();
+        return id == UNKNOWN ? String.valueOf(UNKNOWN) : current.idString;
+    }
+
+    private long resolve() {
+        if (id == UNKNOWN) {
+            long nativeId = ThreadIDUtil.INSTANCE.getNativeCurrentThreadId();
+            if (nativeId != UNKNOWN) {
+                idString = String.valueOf(nativeId);
+                id = nativeId;
+            }
+            return nativeId;
+        }
+        return id;
+    }
+}
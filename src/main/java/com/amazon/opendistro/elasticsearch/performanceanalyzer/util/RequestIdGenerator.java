@@ -0,0 +1,42 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.util;
+
+/**
+ * Generates the ids of the requests tracked by the interceptors, unique within the node, without
+ * a counter shared by the request threads.
+ *
+ * <p>Each thread draws from its own range: the high 32 bits of an id are the id of the Java
+ * thread, which is never reused within the JVM, and the low 32 bits a counter local to the
+ * thread. The counter wraps after 2^32 requests on a thread, long after the events of the first
+ * ones have been read.
+ */
+public final class RequestIdGenerator {
+    private static final ThreadLocal<Range> RANGE = ThreadLocal.withInitial(Range::new);
+
+    private RequestIdGenerator() {}
+
+    public static long next() {
+        Range range = RANGE.get();
+        return range.prefix | (range.counter++ & 0xFFFFFFFFL);
+    }
+
+    private static final class Range {
+        private final long prefix = Thread.currentThread().getId() << 32;
+        private long counter;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.util;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.IndexModule;
+import org.elasticsearch.index.shard.IndexEventListener;
+import org.elasticsearch.index.shard.IndexShard;
+import org.elasticsearch.index.shard.ShardId;
+
+/**
+ * Tracks the shards of the node from the lifecycle callbacks of their index, so that the node
+ * stats collectors do not have to walk every {@code IndexService} on each run, see {@link
+ * Utils#getShards}.
+ *
+ * <p>A shard is added once it is created, and removed before it is closed, which is when it
+ * enters and leaves its {@code IndexService}. Readers get an immutable snapshot, which is only
+ * copied again on the first read after a shard was added or removed, so collecting on a node
+ * whose shards do not change costs nothing.
+ *
+ * <p>The listener is registered on every index module by the plugin. Until then, for instance
+ * when the collectors run without the plugin, the shards are still looked up from the {@code
+ * IndicesService}.
+ */
+public final class ShardRegistry implements IndexEventListener {
+    private static final ShardRegistry INSTANCE = new ShardRegistry();
+
+    private final Map<ShardId, IndexShard> shards = new HashMap<>();
+    private volatile Map<ShardId, IndexShard> snapshot = Collections.emptyMap();
+    private volatile boolean tracking = false;
+
+    @VisibleForTesting
+    ShardRegistry() {}
+
+    public static ShardRegistry instance() {
+        return INSTANCE;
+    }
+
+    /** Tracks the shards of the index. */
+    public void track(IndexModule indexModule) {
+        startTracking();
+        indexModule.addIndexEventListener(this);
+    }
+
+    @VisibleForTesting
+    void startTracking() {
+        tracking = true;
+    }
+
+    /** Returns the shards of the node, which must not be modified. */
+    public Map<ShardId, IndexShard> getShards() {
+        if (!tracking) {
+            return Utils.getShards();
+        }
+        Map<ShardId, IndexShard> current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    snapshot = Collections.unmodifiableMap(new HashMap<>(shards));
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    @Override
+    public synchronized void afterIndexShardCreated(IndexShard indexShard) {
+        shards.put(indexShard.shardId(), indexShard);
+        snapshot = null;
+    }
+
+    @Override
+    public synchronized void beforeIndexShardClosed(
+            ShardId shardId, IndexShard indexShard, Settings indexSettings) {
+        if (shards.remove(shardId) != null) {
+            snapshot = null;
+        }
+    }
+}
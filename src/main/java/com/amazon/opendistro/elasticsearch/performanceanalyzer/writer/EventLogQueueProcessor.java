@@ -27,6 +27,7 @@ import com.amazon.opendistro.elasticsearch.performanceanalyzer.reader_writer_sha
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -35,26 +36,92 @@ import java.util.concurrent.TimeUnit;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+/**
+ * Drains the events queued by the collectors and the request listeners, and writes them to the
+ * event log, one file per time bucket. The sealed buckets are also pushed to the {@link
+ * EventLogSubscriber}s, for consumers inside the JVM.
+ */
 public class EventLogQueueProcessor {
     private static final Logger LOG = LogManager.getLogger(EventLogQueueProcessor.class);
+    public static final int MIN_OPEN_BUCKETS = 2;
+    public static final int DEFAULT_OPEN_BUCKETS = MIN_OPEN_BUCKETS;
 
     private final ScheduledExecutorService writerExecutor = Executors.newScheduledThreadPool(1);
-    private final EventLogFileHandler eventLogFileHandler;
+    private final EventLogWriter eventLogWriter;
     private final long initialDelayMillis;
     private final long purgePeriodicityMillis;
     private final PerformanceAnalyzerController controller;
-    private long lastTimeBucket;
+    // Ring of the time buckets with a tmp file, indexed by bucket number, 0 for a free slot.
+    private final long[] openBuckets;
+    // Events of the current purge, by offset from the oldest open bucket.
+    private final List<List<Event>> pendingMetrics;
+    // Events written to the open buckets, by slot, kept for the subscribers. Null for the buckets
+    // opened while there was no subscriber, which are not published.
+    private final List<List<Event>> retainedMetrics;
+    private final List<EventLogSubscriber> subscribers = new CopyOnWriteArrayList<>();
 
     public EventLogQueueProcessor(
             EventLogFileHandler eventLogFileHandler,
             long initialDelayMillis,
             long purgePeriodicityMillis,
             PerformanceAnalyzerController controller) {
-        this.eventLogFileHandler = eventLogFileHandler;
+        this(
+                new TextEventLogWriter(eventLogFileHandler),
+                initialDelayMillis,
+                purgePeriodicityMillis,
+                controller);
+    }
+
+    public EventLogQueueProcessor(
+            EventLogWriter eventLogWriter,
+            long initialDelayMillis,
+            long purgePeriodicityMillis,
+            PerformanceAnalyzerController controller) {
+        this(
+                eventLogWriter,
+                initialDelayMillis,
+                purgePeriodicityMillis,
+                controller,
+                DEFAULT_OPEN_BUCKETS);
+    }
+
+    /**
+     * @param openBuckets number of time buckets, counting the current one, that still accept
+     *     events. A bucket is only renamed, and so visible to the reader, once it leaves this
+     *     window, so late events up to {@code openBuckets - 1} sampling intervals old still reach
+     *     their bucket. The window follows the wall clock of the purges, not the timestamps of the
+     *     events, so lateness is only bounded relative to the purge ticks.
+     */
+    public EventLogQueueProcessor(
+            EventLogWriter eventLogWriter,
+            long initialDelayMillis,
+            long purgePeriodicityMillis,
+            PerformanceAnalyzerController controller,
+            int openBuckets) {
+        this.eventLogWriter = eventLogWriter;
         this.initialDelayMillis = initialDelayMillis;
         this.purgePeriodicityMillis = purgePeriodicityMillis;
-        this.lastTimeBucket = 0;
         this.controller = controller;
+        this.openBuckets = new long[Math.max(openBuckets, MIN_OPEN_BUCKETS)];
+        this.pendingMetrics = new ArrayList<>(this.openBuckets.length);
+        this.retainedMetrics = new ArrayList<>(this.openBuckets.length);
+        for (int i = 0; i < this.openBuckets.length; i++) {
+            pendingMetrics.add(new ArrayList<>());
+            retainedMetrics.add(null);
+        }
+    }
+
+    /**
+     * Registers a consumer of the sealed buckets. It receives the buckets opened after it
+     * subscribed, so that it never sees a partial bucket. While there are subscribers, the events
+     * of the open buckets are kept in memory until they are sealed.
+     */
+    public void subscribe(EventLogSubscriber subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    public void unsubscribe(EventLogSubscriber subscriber) {
+        subscribers.remove(subscriber);
     }
 
     public void scheduleExecutor() {
@@ -94,6 +161,7 @@ public class EventLogQueueProcessor {
             // new files. But we also want to drain the queue so that when it is
             // enabled next, we don't have the current elements as they would be
             // old.
+            EventStagingQueue.INSTANCE.clear();
             if (PerformanceAnalyzerMetrics.metricQueue.size() > 0) {
                 List<Event> metrics = new ArrayList<>();
                 PerformanceAnalyzerMetrics.metricQueue.drainTo(metrics);
@@ -106,66 +174,107 @@ public class EventLogQueueProcessor {
 
         LOG.debug("Starting to purge the queue.");
         List<Event> metrics = new ArrayList<>();
+        EventStagingQueue.INSTANCE.drainTo(metrics);
         PerformanceAnalyzerMetrics.metricQueue.drainTo(metrics);
         LOG.debug("Queue draining successful.");
 
-        long currentTimeMillis = System.currentTimeMillis();
+        persist(metrics, System.currentTimeMillis());
+    }
 
-        // Calculate the timestamp on the file. For example, lets say the
-        // purging started at time 12.5 then all the events between 5-10
-        // are written to a file with name 5.
-        long timeBucket =
+    /**
+     * Writes the events to the tmp files of their time buckets, and seals the buckets that have
+     * left the window of open buckets.
+     */
+    void persist(List<Event> metrics, long currentTimeMillis) {
+        // Calculate the newest bucket. For example, lets say the purging started at time 12.5,
+        // then the newest bucket is 10 and, with 2 open buckets, the events between 5-15 are
+        // written to the files 5 and 10. The collectors that ran in the 11th second already
+        // pushed events for the bucket 10.
+        long newestTimeBucket =
                 PerformanceAnalyzerMetrics.getTimeInterval(
-                                currentTimeMillis, MetricsConfiguration.SAMPLING_INTERVAL)
-                        - MetricsConfiguration.SAMPLING_INTERVAL;
+                        currentTimeMillis, MetricsConfiguration.SAMPLING_INTERVAL);
+        long oldestTimeBucket =
+                newestTimeBucket
+                        - (openBuckets.length - 1) * MetricsConfiguration.SAMPLING_INTERVAL;
 
-        // When we are trying to collect the metrics for the 5th-10th second,
-        // but doing that in the 12.5th second, there is a chance that a
-        // collector ran in the 11th second and pushed the metrics in the
-        // queue. This thread, should be able to filter them and write them
-        // to their appropriate file, which should be 10 and not 5.
-        long nextTimeBucket = timeBucket + MetricsConfiguration.SAMPLING_INTERVAL;
-
-        List<Event> currMetrics = new ArrayList<>();
-        List<Event> nextMetrics = new ArrayList<>();
+        // Going by the continuing example, the bucket 0 is renamed when the purger runs after
+        // the 10th second, as no event can be added to it any more. The ring is scanned rather
+        // than only the previous bucket, so that the buckets skipped by a long pause of this
+        // thread are sealed as well.
+        // The buckets are sealed oldest first, in the order the reader expects them.
+        for (int oldest = oldestOpenSlot(); oldest >= 0; oldest = oldestOpenSlot()) {
+            if (openBuckets[oldest] >= oldestTimeBucket) {
+                break;
+            }
+            eventLogWriter.renameFromTmp(openBuckets[oldest]);
+            publish(openBuckets[oldest], oldest);
+            openBuckets[oldest] = 0;
+        }
 
         for (Event entry : metrics) {
-            if (entry.epoch == timeBucket) {
-                currMetrics.add(entry);
-            } else if (entry.epoch == nextTimeBucket) {
-                nextMetrics.add(entry);
-            } else {
+            long offset = entry.epoch - oldestTimeBucket;
+            if (offset < 0
+                    || entry.epoch > newestTimeBucket
+                    || offset % MetricsConfiguration.SAMPLING_INTERVAL != 0) {
                 // increment stale_metrics count when metrics to be collected is falling behind the
-                // current bucket
+                // oldest open bucket
                 PerformanceAnalyzerApp.WRITER_METRICS_AGGREGATOR.updateStat(
                         WriterMetrics.STALE_METRICS, "", 1);
+                continue;
             }
+            pendingMetrics.get((int) (offset / MetricsConfiguration.SAMPLING_INTERVAL)).add(entry);
         }
 
         LOG.debug("Start serializing and writing to file.");
-        writeAndRotate(currMetrics, timeBucket, currentTimeMillis);
-        if (!nextMetrics.isEmpty()) {
-            // The next bucket metrics don't need to be considered for
-            // rotation just yet. So, we just write them to the
-            // <nextTimeBucket>.tmp
-            eventLogFileHandler.writeTmpFile(nextMetrics, nextTimeBucket);
+        for (int i = 0; i < openBuckets.length; i++) {
+            List<Event> bucketMetrics = pendingMetrics.get(i);
+            // Append to the tmp file only if we have metrics to publish.
+            if (bucketMetrics.isEmpty()) {
+                continue;
+            }
+            long timeBucket = oldestTimeBucket + i * MetricsConfiguration.SAMPLING_INTERVAL;
+            // This appends the data to a file named <timeBucket>.tmp
+            eventLogWriter.writeTmpFile(bucketMetrics, timeBucket);
+            int slot = slot(timeBucket);
+            if (openBuckets[slot] != timeBucket) {
+                openBuckets[slot] = timeBucket;
+                retainedMetrics.set(slot, subscribers.isEmpty() ? null : new ArrayList<>());
+            }
+            List<Event> retained = retainedMetrics.get(slot);
+            if (retained != null) {
+                retained.addAll(bucketMetrics);
+            }
+            bucketMetrics.clear();
         }
         LOG.debug("Writing to disk complete.");
     }
 
-    private void writeAndRotate(
-            final List<Event> currMetrics, long currTimeBucket, long currentTime) {
-        // Going by the continuing example, we will rotate the 5.tmp file to
-        // 5, which contains the metrics with epoch 5-10, whenever the purger
-        // runs after the 15th second.
-        if (lastTimeBucket != 0 && lastTimeBucket != currTimeBucket) {
-            eventLogFileHandler.renameFromTmp(lastTimeBucket);
+    private void publish(long timeBucket, int slot) {
+        List<Event> events = retainedMetrics.get(slot);
+        retainedMetrics.set(slot, null);
+        if (events == null) {
+            return;
+        }
+        for (EventLogSubscriber subscriber : subscribers) {
+            try {
+                subscriber.onBucketSealed(timeBucket, EventView.iterator(events));
+            } catch (Exception e) {
+                LOG.error("Error publishing bucket {} to {}", timeBucket, subscriber, e);
+            }
         }
-        // Append to the tmp file only if we have metrics to publish.
-        if (!currMetrics.isEmpty()) {
-            // This appends the data to a file named <currTimeBucket>.tmp
-            eventLogFileHandler.writeTmpFile(currMetrics, currTimeBucket);
+    }
+
+    private int oldestOpenSlot() {
+        int oldest = -1;
+        for (int i = 0; i < openBuckets.length; i++) {
+            if (openBuckets[i] != 0 && (oldest < 0 || openBuckets[i] < openBuckets[oldest])) {
+                oldest = i;
+            }
         }
-        lastTimeBucket = currTimeBucket;
+        return oldest;
+    }
+
+    private int slot(long timeBucket) {
+        return (int) ((timeBucket / MetricsConfiguration.SAMPLING_INTERVAL) % openBuckets.length);
     }
 }
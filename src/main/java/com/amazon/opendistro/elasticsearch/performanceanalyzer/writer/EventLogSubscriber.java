@@ -0,0 +1,35 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.writer;
+
+import java.util.Iterator;
+
+/**
+ * Consumes the events of the sealed time buckets inside the JVM, without reading back the event
+ * log files, see {@link EventLogQueueProcessor#subscribe}.
+ */
+@FunctionalInterface
+public interface EventLogSubscriber {
+    /**
+     * Called on the queue purger thread once the bucket has been sealed, with the events
+     * written to it, in the order they were written. The iterator returns the same {@link
+     * EventView} instance for every event, so a subscriber that keeps an event must copy it with
+     * {@link EventView#toEvent()}. The writer waits for the subscribers, so this should not
+     * block.
+     */
+    void onBucketSealed(long timeBucket, Iterator<EventView> events);
+}
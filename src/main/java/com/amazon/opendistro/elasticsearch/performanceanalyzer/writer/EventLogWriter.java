@@ -0,0 +1,40 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.writer;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.reader_writer_shared.Event;
+import java.util.List;
+
+/**
+ * Persists the events drained by the {@link EventLogQueueProcessor} into one file per time
+ * bucket in the metrics location. Events are first appended to {@code <bucket>.tmp} and the
+ * file is renamed to {@code <bucket>} once the bucket is complete, which is the signal for the
+ * reader to pick it up.
+ *
+ * <p>Implementations are only ever called from one thread at a time, the queue purger thread or,
+ * for the partitions of a {@link PartitionedEventLogWriter}, the thread of the partition.
+ */
+public interface EventLogWriter {
+    /**
+     * Appends the events to the tmp file of the given time bucket, creating it if needed.
+     */
+    void writeTmpFile(List<Event> events, long timeBucket);
+
+    /**
+     * Marks the time bucket as complete by renaming {@code <bucket>.tmp} to {@code <bucket>}.
+     */
+    void renameFromTmp(long timeBucket);
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.writer;
+
+/**
+ * Priority classes of the events that can be shed under load, see {@link LoadSheddingPolicy}.
+ * The node level snapshots of the collectors are not part of any class, they are never shed.
+ */
+public enum EventPriority {
+    /** Start and finish of the bulk and search requests received by the node. */
+    REQUEST("ShedRequestEvents"),
+    /** Start and finish of the shard bulk, query and fetch operations, the most frequent events. */
+    SHARD_REQUEST("ShedShardRequestEvents");
+
+    private final String shedMetric;
+
+    EventPriority(String shedMetric) {
+        this.shedMetric = shedMetric;
+    }
+
+    /** Name of the metric counting the events of this class that were shed. */
+    public String shedMetric() {
+        return shedMetric;
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.writer;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors.StatExceptionCode;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors.StatsCollector;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.MetricsProcessor;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.PerformanceAnalyzerMetrics;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.reader_writer_shared.Event;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Stages the events emitted by the request threads in bounded, per-thread ring buffers, so that
+ * the search and write threads no longer contend on the lock of {@link
+ * PerformanceAnalyzerMetrics#metricQueue}.
+ *
+ * <p>Each producer thread owns a single-producer/single-consumer ring, and the only consumer is
+ * the purger thread of the {@link EventLogQueueProcessor}. When a ring is full the event is
+ * dropped and counted as {@link #DROPPED_EVENTS_METRIC}, rather than blocking the request thread
+ * or growing without limit.
+ *
+ * <p>The staged events are replayed through {@link MetricsProcessor#saveMetricValues} on the
+ * purger thread, so the events written to the event log are the same as when they are emitted
+ * directly. Staging is disabled by default, in which case {@link #emit} is just that call.
+ *
+ * <p>Request events are first checked with {@link #admit}, which sheds them according to the
+ * {@link LoadSheddingPolicy} when the writer falls behind.
+ */
+public enum EventStagingQueue {
+    INSTANCE;
+
+    private static final Logger LOG = LogManager.getLogger(EventStagingQueue.class);
+    public static final String DROPPED_EVENTS_METRIC = "StagedEventsDropped";
+    public static final int DEFAULT_RING_CAPACITY = 1024;
+
+    private final List<Ring> rings = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<Ring> localRing = new ThreadLocal<>();
+    private volatile boolean enabled = false;
+    private volatile int ringCapacity = DEFAULT_RING_CAPACITY;
+    private volatile LoadSheddingPolicy loadSheddingPolicy = LoadSheddingPolicy.DEFAULT;
+
+    /**
+     * Enables or disables staging. The capacity only applies to the rings of the threads that have
+     * not emitted any staged event yet, so this is meant to be called once when the plugin loads.
+     */
+    public void configure(boolean enabled, int ringCapacity) {
+        this.ringCapacity = ringCapacity;
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setLoadSheddingPolicy(LoadSheddingPolicy loadSheddingPolicy) {
+        this.loadSheddingPolicy = loadSheddingPolicy;
+    }
+
+    /**
+     * Returns whether the calling thread should emit the events of a new request of the given
+     * class, and counts it as shed otherwise. The decision is taken once per request, when it
+     * starts, so that its start and finish events are either both kept or both shed.
+     */
+    public boolean admit(EventPriority priority) {
+        LoadSheddingPolicy policy = loadSheddingPolicy;
+        double fill = policy.queueFill(PerformanceAnalyzerMetrics.metricQueue.size());
+        if (enabled) {
+            Ring ring = localRing.get();
+            if (ring != null) {
+                fill = Math.max(fill, ring.fill());
+            }
+        }
+        if (!policy.admit(priority, fill)) {
+            StatsCollector.instance().logMetric(priority.shedMetric());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Emits the metric value on behalf of the processor: staged in the ring of the calling thread
+     * if staging is enabled, written to the metric queue otherwise.
+     *
+     * @return false if the event was dropped because the ring of the calling thread is full.
+     */
+    public boolean emit(
+            MetricsProcessor processor, String value, long startTime, String... keysPath) {
+        if (!enabled) {
+            processor.saveMetricValues(value, startTime, keysPath);
+            return true;
+        }
+        Ring ring = localRing.get();
+        if (ring == null) {
+            ring = new Ring(Thread.currentThread(), ringCapacity);
+            rings.add(ring);
+            localRing.set(ring);
+        }
+        if (!ring.offer(processor, value, startTime, keysPath)) {
+            StatsCollector.instance().logMetric(DROPPED_EVENTS_METRIC);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Replays the staged events into the metric queue, and drains the metric queue into the sink
+     * after each ring, so that replaying never overflows the queue. Must only be called from the
+     * purger thread.
+     *
+     * @return the number of staged events replayed.
+     */
+    public int drainTo(Collection<Event> sink) {
+        int replayed = 0;
+        for (Ring ring : rings) {
+            replayed += ring.drain(true);
+            PerformanceAnalyzerMetrics.metricQueue.drainTo(sink);
+            removeIfAbandoned(ring);
+        }
+        return replayed;
+    }
+
+    /** Discards the staged events, for when the performance analyzer is disabled. */
+    public void clear() {
+        for (Ring ring : rings) {
+            ring.drain(false);
+            removeIfAbandoned(ring);
+        }
+    }
+
+    private void removeIfAbandoned(Ring ring) {
+        // The ring of a terminated thread can not receive new events once it is empty.
+        if (!ring.owner.isAlive() && ring.isEmpty()) {
+            rings.remove(ring);
+        }
+    }
+
+    /**
+     * A single-producer/single-consumer ring. The slots are preallocated and reused, and are
+     * published to the consumer by the ordered write of the tail.
+     */
+    private static final class Ring {
+        private final Thread owner;
+        private final StagedEvent[] slots;
+        private final int mask;
+        // Next slot to read, only written by the consumer.
+        private final AtomicLong head = new AtomicLong();
+        // Next slot to write, only written by the producer.
+        private final AtomicLong tail = new AtomicLong();
+        // Last value of the head seen by the producer, so it rarely has to read the shared one.
+        private long cachedHead;
+
+        private Ring(Thread owner, int capacity) {
+            int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+            this.owner = owner;
+            this.slots = new StagedEvent[size];
+            this.mask = size - 1;
+            for (int i = 0; i < size; i++) {
+                slots[i] = new StagedEvent();
+            }
+        }
+
+        private boolean offer(
+                MetricsProcessor processor, String value, long startTime, String[] keysPath) {
+            long t = tail.get();
+            if (t - cachedHead >= slots.length) {
+                cachedHead = head.get();
+                if (t - cachedHead >= slots.length) {
+                    return false;
+                }
+            }
+            StagedEvent slot = slots[(int) t & mask];
+            slot.processor = processor;
+            slot.value = value;
+            slot.startTime = startTime;
+            slot.keysPath = keysPath;
+            tail.lazySet(t + 1);
+            return true;
+        }
+
+        private int drain(boolean replay) {
+            long h = head.get();
+            long t = tail.get();
+            for (long i = h; i < t; i++) {
+                StagedEvent slot = slots[(int) i & mask];
+                if (replay) {
+                    slot.replay();
+                }
+                slot.clear();
+            }
+            head.lazySet(t);
+            return (int) (t - h);
+        }
+
+        private double fill() {
+            return (double) (tail.get() - head.get()) / slots.length;
+        }
+
+        private boolean isEmpty() {
+            return head.get() == tail.get();
+        }
+    }
+
+    private static final class StagedEvent {
+        private MetricsProcessor processor;
+        private String value;
+        private long startTime;
+        private String[] keysPath;
+
+        private void replay() {
+            try {
+                processor.saveMetricValues(value, startTime, keysPath);
+            } catch (Exception ex) {
+                LOG.error(ex);
+                StatsCollector.instance()
+                        .logException(StatExceptionCode.ES_REQUEST_INTERCEPTOR_ERROR);
+            }
+        }
+
+        private void clear() {
+            processor = null;
+            value = null;
+            keysPath = null;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.writer;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.reader_writer_shared.Event;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A reusable view of an event handed to the {@link EventLogSubscriber}s. It is only valid until
+ * the iterator that returned it moves to the next event.
+ */
+public final class EventView {
+    private String key;
+    private String value;
+    private long epoch;
+
+    EventView() {}
+
+    public String key() {
+        return key;
+    }
+
+    public String value() {
+        return value;
+    }
+
+    public long epoch() {
+        return epoch;
+    }
+
+    /** Returns a copy of the event the view currently shows. */
+    public Event toEvent() {
+        return new Event(key, value, epoch);
+    }
+
+    void set(Event event) {
+        this.key = event.key;
+        this.value = event.value;
+        this.epoch = event.epoch;
+    }
+
+    /** Returns an iterator over the events that moves a single view from one event to the next. */
+    static Iterator<EventView> iterator(List<Event> events) {
+        EventView view = new EventView();
+        return new Iterator<EventView>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < events.size();
+            }
+
+            @Override
+            public EventView next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                view.set(events.get(next++));
+                return view;
+            }
+        };
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.writer;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides which events are shed when the writer falls behind, so that the performance analyzer
+ * does not add to the heap pressure of a node that is already struggling.
+ *
+ * <p>The load is the fill ratio of the event backlog: the metric queue relative to {@code
+ * queueCapacity}, or the staging ring of the calling thread. Below the low water mark every event
+ * is kept. Between the low and high water marks, {@link EventPriority#SHARD_REQUEST} events are
+ * sampled down linearly until all of them are shed at the high water mark. Past the high water
+ * mark, {@link EventPriority#REQUEST} events are sampled down the same way until the backlog is
+ * full.
+ */
+public final class LoadSheddingPolicy {
+    public static final int DEFAULT_QUEUE_CAPACITY = 100000;
+    public static final double DEFAULT_LOW_WATER_MARK = 0.5;
+    public static final double DEFAULT_HIGH_WATER_MARK = 0.8;
+    public static final LoadSheddingPolicy DEFAULT =
+            new LoadSheddingPolicy(
+                    DEFAULT_QUEUE_CAPACITY, DEFAULT_LOW_WATER_MARK, DEFAULT_HIGH_WATER_MARK);
+
+    private final int queueCapacity;
+    private final double lowWaterMark;
+    private final double highWaterMark;
+
+    public LoadSheddingPolicy(int queueCapacity, double lowWaterMark, double highWaterMark) {
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException(
+                    "Queue capacity must be positive, got [" + queueCapacity + "]");
+        }
+        if (lowWaterMark < 0 || lowWaterMark > highWaterMark || highWaterMark > 1) {
+            throw new IllegalArgumentException(
+                    "Water marks must satisfy 0 <= low <= high <= 1, got ["
+                            + lowWaterMark
+                            + ", "
+                            + highWaterMark
+                            + "]");
+        }
+        this.queueCapacity = queueCapacity;
+        this.lowWaterMark = lowWaterMark;
+        this.highWaterMark = highWaterMark;
+    }
+
+    /** Fill ratio of the metric queue when it holds {@code size} events. */
+    public double queueFill(int size) {
+        return (double) size / queueCapacity;
+    }
+
+    /** Returns whether an event of the given class should be kept at the given fill ratio. */
+    public boolean admit(EventPriority priority, double fill) {
+        switch (priority) {
+            case SHARD_REQUEST:
+                return admit(fill, lowWaterMark, highWaterMark);
+            case REQUEST:
+            default:
+                return admit(fill, highWaterMark, 1);
+        }
+    }
+
+    private static boolean admit(double fill, double from, double to) {
+        if (fill < from) {
+            return true;
+        } else if (fill >= to) {
+            return false;
+        }
+        // The probability to keep the event decreases linearly from 1 to 0 between the marks.
+        return ThreadLocalRandom.current().nextDouble() * (to - from) >= fill - from;
+    }
+}
@@ -0,0 +1,298 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.writer;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.reader_writer_shared.Event;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Spreads the writing of the event log over several threads. The events are partitioned by a
+ * hash of the first two segments of their metric path, the family and, for the threads and
+ * indices families, the thread id or the index name, so the volume spreads evenly over the
+ * partitions while the events of a thread or an index stay in order. Each partition is written
+ * by its own thread and writer, into its own tmp file per bucket.
+ *
+ * <p>The partition files live in a directory next to the metrics location, so the reader never
+ * sees them. When a bucket is complete, each partition seals its file, and the sealed files are
+ * merged into {@code <bucket>.tmp} in the metrics location, which is then renamed to {@code
+ * <bucket>}. The rotation stays a single atomic rename for the reader. The text files are
+ * simply concatenated; they are mapped rather than read, so the merge does not copy them through
+ * the heap.
+ *
+ * <p>The purger thread only splits the events into a new batch per partition and queues it on
+ * the partition thread, it does not wait for the writes. Each partition thread runs its writes
+ * and renames in the order the {@link EventLogQueueProcessor} makes them, so a bucket is only
+ * sealed once all its events are written. The merge of a complete bucket runs on its own thread,
+ * once every partition has sealed its file. Buckets are merged one at a time, in the order they
+ * complete.
+ */
+public class PartitionedEventLogWriter implements EventLogWriter {
+    private static final Logger LOG = LogManager.getLogger(PartitionedEventLogWriter.class);
+    static final String PARTITIONS_DIR_EXT = ".partitions";
+    private static final String TMP_FILE_EXT = ".tmp";
+    public static final int MAX_PARTITIONS = 8;
+    private static final int HASHED_SEGMENTS = 2;
+
+    private final String metricsLocation;
+    private final Partition[] partitions;
+    private final ExecutorService merger = newThread("pa-event-log-merger");
+
+    /**
+     * @param partitionWriter creates the writer of a partition, given the directory it writes
+     *     its files to.
+     */
+    public PartitionedEventLogWriter(
+            String metricsLocation,
+            int partitionCount,
+            Function<String, EventLogWriter> partitionWriter) {
+        this.metricsLocation = metricsLocation;
+        Path root = partitionsRoot(metricsLocation);
+        this.partitions = new Partition[Math.max(1, Math.min(partitionCount, MAX_PARTITIONS))];
+        for (int i = 0; i < partitions.length; i++) {
+            Path directory = root.resolve(String.valueOf(i));
+            deleteFiles(directory);
+            partitions[i] =
+                    new Partition(
+                            i, directory, partitionWriter.apply(directory + File.separator));
+        }
+    }
+
+    /** The directory holding the partition files, next to the metrics location. */
+    static Path partitionsRoot(String metricsLocation) {
+        Path location = Paths.get(metricsLocation).toAbsolutePath();
+        return location.resolveSibling(location.getFileName() + PARTITIONS_DIR_EXT);
+    }
+
+    /**
+     * Queues the events on their partitions and returns without waiting for them to be written.
+     * Each partition gets a batch of its own, which only its thread reads.
+     */
+    @Override
+    public void writeTmpFile(List<Event> events, long timeBucket) {
+        List<List<Event>> batches = new ArrayList<>(partitions.length);
+        for (int i = 0; i < partitions.length; i++) {
+            batches.add(new ArrayList<>());
+        }
+        for (Event event : events) {
+            batches.get(partition(event.key)).add(event);
+        }
+        for (int i = 0; i < partitions.length; i++) {
+            List<Event> batch = batches.get(i);
+            if (!batch.isEmpty()) {
+                partitions[i].write(batch, timeBucket);
+            }
+        }
+    }
+
+    @Override
+    public void renameFromTmp(long timeBucket) {
+        List<Future<?>> renames = new ArrayList<>(partitions.length);
+        for (Partition partition : partitions) {
+            renames.add(
+                    partition.executor.submit(() -> partition.writer.renameFromTmp(timeBucket)));
+        }
+        merger.execute(() -> mergeBucket(renames, timeBucket));
+    }
+
+    /**
+     * Waits for the partitions of the bucket to be sealed, and merges them. If the wait is
+     * interrupted, the partitions may still be sealing, so they are left for the next run to
+     * clean up rather than merged half way.
+     */
+    private void mergeBucket(List<Future<?>> renames, long timeBucket) {
+        if (!awaitAll(renames)) {
+            return;
+        }
+        List<Path> sealed = new ArrayList<>(partitions.length);
+        for (Partition partition : partitions) {
+            Path file = partition.directory.resolve(String.valueOf(timeBucket));
+            if (Files.exists(file)) {
+                sealed.add(file);
+            }
+        }
+        if (sealed.isEmpty()) {
+            return;
+        }
+        Path tmpFile = Paths.get(metricsLocation, timeBucket + TMP_FILE_EXT);
+        try {
+            merge(sealed, tmpFile);
+            Files.move(
+                    tmpFile,
+                    Paths.get(metricsLocation, String.valueOf(timeBucket)),
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOG.error("Error merging the partitions of bucket {}", timeBucket, e);
+            deleteQuietly(tmpFile);
+        } finally {
+            for (Path file : sealed) {
+                deleteQuietly(file);
+            }
+        }
+    }
+
+    /** Waits for the buckets completed so far to be merged. Only meant for tests. */
+    void awaitMerges() {
+        awaitAll(Collections.singletonList(merger.submit(() -> { })));
+    }
+
+    /** Stops the partition threads. Only meant for tests, the writer lives as long as the node. */
+    void close() {
+        for (Partition partition : partitions) {
+            partition.executor.shutdownNow();
+        }
+        merger.shutdownNow();
+    }
+
+    int partition(String key) {
+        return Math.floorMod(hash(key), partitions.length);
+    }
+
+    /**
+     * Returns the hash of the first two segments of the key, as {@link String#hashCode()} would
+     * compute it for them, without copying them out of the key. The high bits are folded into
+     * the low ones, which pick the partition.
+     */
+    static int hash(String key) {
+        int end = -1;
+        for (int segment = 0; segment < HASHED_SEGMENTS; segment++) {
+            end = key.indexOf(File.separatorChar, end + 1);
+            if (end < 0) {
+                end = key.length();
+                break;
+            }
+        }
+        int hash = 0;
+        for (int i = 0; i < end; i++) {
+            hash = 31 * hash + key.charAt(i);
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    /** Merges the partition files into target, with a single gathering write. */
+    private static void merge(List<Path> files, Path target) throws IOException {
+        ByteBuffer[] buffers = new ByteBuffer[files.size()];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = map(files.get(i));
+        }
+        // The buffers are written in order, so they are all written once the last one is.
+        ByteBuffer last = buffers[buffers.length - 1];
+        try (FileChannel out =
+                FileChannel.open(
+                        target,
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (last.hasRemaining()) {
+                out.write(buffers);
+            }
+        }
+    }
+
+    private static ByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /** Returns false, without waiting for the remaining futures, if the wait is interrupted. */
+    private static boolean awaitAll(List<Future<?>> futures) {
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } catch (ExecutionException e) {
+                LOG.error("Error sealing an event log partition", e.getCause());
+            }
+        }
+        return true;
+    }
+
+    private static void deleteFiles(Path directory) {
+        try {
+            Files.createDirectories(directory);
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+                // Partition files left by a previous run can not be merged any more.
+                for (Path file : files) {
+                    deleteQuietly(file);
+                }
+            }
+        } catch (IOException e) {
+            LOG.error("Error preparing the event log partition directory {}", directory, e);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            LOG.debug("Error deleting {}", file, e);
+        }
+    }
+
+    private static ExecutorService newThread(String name) {
+        return Executors.newSingleThreadExecutor(
+                runnable -> {
+                    Thread thread = new Thread(runnable, name);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    private static final class Partition {
+        private final Path directory;
+        private final EventLogWriter writer;
+        private final ExecutorService executor;
+
+        private Partition(int index, Path directory, EventLogWriter writer) {
+            this.directory = directory;
+            this.writer = writer;
+            this.executor = newThread("pa-event-log-writer-" + index);
+        }
+
+        private void write(List<Event> batch, long timeBucket) {
+            executor.execute(
+                    () -> {
+                        try {
+                            writer.writeTmpFile(batch, timeBucket);
+                        } catch (RuntimeException e) {
+                            LOG.error("Error writing an event log partition", e);
+                        }
+                    });
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.writer;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.PerformanceAnalyzerMetrics;
+
+/**
+ * Encodes the value of a request event in a buffer reused by the calling thread, so that the
+ * request interceptors only allocate the resulting string.
+ *
+ * <p>The keys are rendered once by the callers with {@link #key}, into the delimited form written
+ * before each value. An event is encoded as:
+ *
+ * <pre>{@code
+ * String value = RequestEventEncoder.start()
+ *         .append(START_TIME_KEY, startTime)
+ *         .append(INDEX_NAME_KEY, indexName)
+ *         .encode(weight);
+ * }</pre>
+ *
+ * <p>The encoder of a thread must not be used again before the previous event was encoded.
+ */
+public final class RequestEventEncoder {
+    private static final int INITIAL_CAPACITY = 256;
+    // A buffer grown past this size by an unusually long value is not kept by the thread.
+    private static final int MAX_RETAINED_CAPACITY = 4096;
+    private static final String SAMPLING_WEIGHT_KEY = key(RequestEventSampler.SAMPLING_WEIGHT);
+    private static final ThreadLocal<RequestEventEncoder> ENCODER =
+            ThreadLocal.withInitial(RequestEventEncoder::new);
+
+    private StringBuilder value = new StringBuilder(INITIAL_CAPACITY);
+
+    private RequestEventEncoder() {}
+
+    /** Renders the prefix written before each value of the key. */
+    public static String key(Object key) {
+        return PerformanceAnalyzerMetrics.sMetricNewLineDelimitor
+                + key
+                + PerformanceAnalyzerMetrics.sKeyValueDelimitor;
+    }
+
+    /** Starts a new event on the encoder of the calling thread, with the current time. */
+    public static RequestEventEncoder start() {
+        RequestEventEncoder encoder = ENCODER.get();
+        if (encoder.value.capacity() > MAX_RETAINED_CAPACITY) {
+            encoder.value = new StringBuilder(INITIAL_CAPACITY);
+        } else {
+            encoder.value.setLength(0);
+        }
+        encoder.value.append(PerformanceAnalyzerMetrics.getCurrentTimeMetric());
+        return encoder;
+    }
+
+    public RequestEventEncoder append(String key, String value) {
+        this.value.append(key).append(value);
+        return this;
+    }
+
+    public RequestEventEncoder append(String key, long value) {
+        this.value.append(key).append(value);
+        return this;
+    }
+
+    public RequestEventEncoder append(String key, boolean value) {
+        this.value.append(key).append(value);
+        return this;
+    }
+
+    /**
+     * Returns the encoded event, with the sampling weight of the request unless every request is
+     * sampled.
+     */
+    public String encode(double weight) {
+        if (weight != 1) {
+            value.append(SAMPLING_WEIGHT_KEY).append(weight);
+        }
+        return value.toString();
+    }
+}
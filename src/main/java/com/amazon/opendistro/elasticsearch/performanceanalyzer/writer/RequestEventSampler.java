@@ -0,0 +1,108 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.writer;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Samples the requests whose start and finish events are emitted. The decision is taken once per
+ * request, when it starts, and the events of a sampled request are tagged with its {@link
+ * #SAMPLING_WEIGHT}, the inverse of the sampling rate, so that counts and sums computed from the
+ * sampled events can be scaled back to the full traffic.
+ *
+ * <p>The rate is the fixed rate, lowered if needed to keep the start and finish events under a
+ * budget of events per second. The budget is enforced by measuring the requests offered over
+ * each {@link #ADAPT_INTERVAL_MILLIS} window, and applies to the next one. With the default rate
+ * of 1 and no budget, every request is sampled and no weight is added to the events.
+ */
+public class RequestEventSampler {
+    public static final String SAMPLING_WEIGHT = "SamplingWeight";
+    public static final double DEFAULT_SAMPLING_RATE = 1.0;
+    public static final int DEFAULT_EVENTS_PER_SECOND_BUDGET = 0;
+    static final long ADAPT_INTERVAL_MILLIS = 1000;
+    private static final int EVENTS_PER_REQUEST = 2;
+
+    private volatile double samplingRate = DEFAULT_SAMPLING_RATE;
+    private volatile int eventsPerSecondBudget = DEFAULT_EVENTS_PER_SECOND_BUDGET;
+    private volatile double adaptiveRate = 1.0;
+    private final LongAdder offeredRequests = new LongAdder();
+    private final AtomicLong windowStart = new AtomicLong();
+
+    public double getSamplingRate() {
+        return samplingRate;
+    }
+
+    /** Sets the fixed sampling rate, in (0, 1]. */
+    public void setSamplingRate(double samplingRate) {
+        if (!(samplingRate > 0 && samplingRate <= 1)) {
+            throw new IllegalArgumentException(
+                    "Sampling rate must be in (0, 1], got [" + samplingRate + "]");
+        }
+        this.samplingRate = samplingRate;
+    }
+
+    public int getEventsPerSecondBudget() {
+        return eventsPerSecondBudget;
+    }
+
+    /** Sets the budget of request events per second, 0 to disable adaptive sampling. */
+    public void setEventsPerSecondBudget(int eventsPerSecondBudget) {
+        if (eventsPerSecondBudget < 0) {
+            throw new IllegalArgumentException(
+                    "Events per second budget must not be negative, got ["
+                            + eventsPerSecondBudget
+                            + "]");
+        }
+        this.eventsPerSecondBudget = eventsPerSecondBudget;
+        if (eventsPerSecondBudget == 0) {
+            adaptiveRate = 1.0;
+        }
+    }
+
+    /**
+     * Decides whether the events of a request starting now are emitted.
+     *
+     * @return the sampling weight of the request, or 0 if it is not sampled.
+     */
+    public double sample(long currentTimeMillis) {
+        if (eventsPerSecondBudget > 0) {
+            offeredRequests.increment();
+            adapt(currentTimeMillis);
+        }
+        double rate = Math.min(samplingRate, adaptiveRate);
+        if (rate >= 1) {
+            return 1;
+        }
+        return ThreadLocalRandom.current().nextDouble() < rate ? 1 / rate : 0;
+    }
+
+    private void adapt(long currentTimeMillis) {
+        long start = windowStart.get();
+        long elapsed = currentTimeMillis - start;
+        // Only the thread that closes the window computes the rate of the next one.
+        if (elapsed < ADAPT_INTERVAL_MILLIS
+                || !windowStart.compareAndSet(start, currentTimeMillis)) {
+            return;
+        }
+        double eventsPerSecond =
+                EVENTS_PER_REQUEST * offeredRequests.sumThenReset() * 1000.0 / elapsed;
+        int budget = eventsPerSecondBudget;
+        adaptiveRate = budget == 0 || eventsPerSecond <= budget ? 1.0 : budget / eventsPerSecond;
+    }
+}
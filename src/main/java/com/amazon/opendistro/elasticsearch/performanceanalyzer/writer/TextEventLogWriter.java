@@ -0,0 +1,47 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.writer;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.reader_writer_shared.Event;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.reader_writer_shared.EventLog;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.reader_writer_shared.EventLogFileHandler;
+import java.util.List;
+
+/**
+ * Writes events in the original text format, {@code ^key\nvalue$\n} per event, through the
+ * {@link EventLogFileHandler} shared with the reader.
+ */
+public class TextEventLogWriter implements EventLogWriter {
+    private final EventLogFileHandler eventLogFileHandler;
+
+    public TextEventLogWriter(String metricsLocation) {
+        this(new EventLogFileHandler(new EventLog(), metricsLocation));
+    }
+
+    public TextEventLogWriter(EventLogFileHandler eventLogFileHandler) {
+        this.eventLogFileHandler = eventLogFileHandler;
+    }
+
+    @Override
+    public void writeTmpFile(List<Event> events, long timeBucket) {
+        eventLogFileHandler.writeTmpFile(events, timeBucket);
+    }
+
+    @Override
+    public void renameFromTmp(long timeBucket) {
+        eventLogFileHandler.renameFromTmp(timeBucket);
+    }
+}
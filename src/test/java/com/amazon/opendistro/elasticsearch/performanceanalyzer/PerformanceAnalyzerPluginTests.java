@@ -19,6 +19,7 @@ import static org.mockito.MockitoAnnotations.initMocks;
 
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.action.PerformanceAnalyzerActionFilter;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.config.setting.PerformanceAnalyzerClusterSettings;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.config.setting.PerformanceAnalyzerNodeSettings;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.http_action.config.PerformanceAnalyzerClusterConfigAction;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.http_action.config.PerformanceAnalyzerConfigAction;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.http_action.config.PerformanceAnalyzerOverridesClusterConfigAction;
@@ -148,9 +149,23 @@ public class PerformanceAnalyzerPluginTests extends ESTestCase {
   @Test
   public void testGetSettings() {
     List<Setting<?>> list = plugin.getSettings();
-    assertEquals(3, list.size());
+    assertEquals(17, list.size());
     assertEquals(PerformanceAnalyzerClusterSettings.COMPOSITE_PA_SETTING, list.get(0));
     assertEquals(PerformanceAnalyzerClusterSettings.PA_NODE_STATS_SETTING, list.get(1));
     assertEquals(PerformanceAnalyzerClusterSettings.CONFIG_OVERRIDES_SETTING, list.get(2));
+    assertEquals(PerformanceAnalyzerNodeSettings.EVENT_STAGING_ENABLED_SETTING, list.get(3));
+    assertEquals(PerformanceAnalyzerNodeSettings.EVENT_STAGING_RING_CAPACITY_SETTING, list.get(4));
+    assertEquals(PerformanceAnalyzerNodeSettings.LOAD_SHEDDING_QUEUE_CAPACITY_SETTING, list.get(5));
+    assertEquals(PerformanceAnalyzerNodeSettings.LOAD_SHEDDING_LOW_WATER_MARK_SETTING, list.get(6));
+    assertEquals(PerformanceAnalyzerNodeSettings.LOAD_SHEDDING_HIGH_WATER_MARK_SETTING, list.get(7));
+    assertEquals(PerformanceAnalyzerNodeSettings.SEARCH_EVENT_MODE_SETTING, list.get(8));
+    assertEquals(PerformanceAnalyzerNodeSettings.SEARCH_EVENT_READER_ENABLED_SETTING, list.get(9));
+    assertEquals(PerformanceAnalyzerNodeSettings.EVENT_LOG_WRITER_THREADS_SETTING, list.get(10));
+    assertEquals(PerformanceAnalyzerNodeSettings.EVENT_LOG_OPEN_BUCKETS_SETTING, list.get(11));
+    assertEquals(PerformanceAnalyzerClusterSettings.COLLECTOR_INTERVALS_SETTING, list.get(12));
+    assertEquals(PerformanceAnalyzerNodeSettings.COLLECTOR_CPU_BUDGET_SETTING, list.get(13));
+    assertEquals(PerformanceAnalyzerNodeSettings.COLLECTOR_SHARD_STATS_THREADS_SETTING, list.get(14));
+    assertEquals(PerformanceAnalyzerNodeSettings.COLLECTOR_SHARD_STATS_DEADLINE_SETTING, list.get(15));
+    assertEquals(PerformanceAnalyzerNodeSettings.NODE_STATS_HEARTBEAT_RUNS_SETTING, list.get(16));
   }
 }
@@ -22,6 +22,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.MockitoAnnotations.initMocks;
 
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.config.PerformanceAnalyzerController;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.writer.RequestEventSampler;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.ActionRequest;
 import org.elasticsearch.action.ActionResponse;
@@ -51,6 +52,7 @@ public class PerformanceAnalyzerActionFilterTests {
     initMocks(this);
 
     Mockito.when(controller.isPerformanceAnalyzerEnabled()).thenReturn(true);
+    Mockito.when(controller.getRequestEventSampler()).thenReturn(new RequestEventSampler());
     filter = new PerformanceAnalyzerActionFilter((controller));
   }
 
@@ -23,6 +23,7 @@ import com.amazon.opendistro.elasticsearch.performanceanalyzer.config.PluginSett
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.PerformanceAnalyzerMetrics;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.reader_writer_shared.Event;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.util.TestUtil;
+import java.lang.management.ManagementFactory;
 import java.util.List;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.action.ActionListener;
@@ -105,6 +106,46 @@ public class PerformanceAnalyzerActionListenerTests {
         assertTrue( metricsValues[3].contains("Exception:java.lang.NullPointerException"));
     }
 
+    @Test
+    public void testListenerAllocatesNoMoreThanBaseline() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        org.junit.Assume.assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+        ActionListener<ActionResponse> original = ActionListener.wrap(() -> { });
+        Object[] kept = new Object[10_000];
+        long listenerBytes = Long.MAX_VALUE;
+        long baselineBytes = Long.MAX_VALUE;
+        // The minimum over a few rounds leaves out the allocations of the JIT and of the first calls.
+        for (int round = 0; round < 5; round++) {
+            long start = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            for (int i = 0; i < kept.length; i++) {
+                PerformanceAnalyzerActionListener<ActionResponse> listener = new PerformanceAnalyzerActionListener<>();
+                listener.set(RequestType.bulk, listenerId, original);
+                listener.onResponse(null);
+                kept[i] = listener;
+            }
+            long mid = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            for (int i = 0; i < kept.length; i++) {
+                BaselineListener listener = new BaselineListener();
+                listener.type = RequestType.bulk;
+                listener.id = listenerId;
+                listener.original = original;
+                kept[i] = listener;
+            }
+            long end = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            listenerBytes = Math.min(listenerBytes, mid - start);
+            baselineBytes = Math.min(baselineBytes, end - mid);
+        }
+        assertTrue(listenerBytes + " > " + baselineBytes, listenerBytes <= baselineBytes);
+    }
+
+    /** The fields of the listener before the double completion check. */
+    private static final class BaselineListener {
+        private RequestType type;
+        private ActionListener<?> original;
+        private String id;
+        private double weight = 1;
+    }
+
     private void testOnResponse(ActionResponse response) {
         actionListener.onResponse(response);
 
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors.CollectorBudget.Priority;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.MetricsConfiguration;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CollectorBudgetTests {
+    private static final int INTERVAL = 5000;
+    private static final CollectorBudget BUDGET = CollectorBudget.INSTANCE;
+
+    @Before
+    public void init() {
+        // 1% of a core, 50ms of CPU time per 5s interval.
+        BUDGET.configure(0.01);
+    }
+
+    @After
+    public void cleanup() {
+        BUDGET.configure(0);
+        CollectorIntervals.INSTANCE.update(Collections.emptyMap());
+    }
+
+    @Test
+    public void testWithinBudget() {
+        record(ShardStateCollector.class, Priority.LOW, 30);
+        record(ThreadPoolMetricsCollector.class, Priority.HIGH, 20);
+        assertEquals(INTERVAL, BUDGET.stretch(ShardStateCollector.class, INTERVAL));
+        assertEquals(INTERVAL, BUDGET.stretch(ThreadPoolMetricsCollector.class, INTERVAL));
+    }
+
+    @Test
+    public void testStretchesLowPriorityCollectorsFirst() {
+        record(ThreadPoolMetricsCollector.class, Priority.HIGH, 10);
+        record(CircuitBreakerCollector.class, Priority.NORMAL, 40);
+        record(NodeStatsAllShardsMetricsCollector.class, Priority.LOW, 20);
+        record(ShardStateCollector.class, Priority.LOW, 100);
+
+        // 170ms per interval for a budget of 50ms: stretching both low priority collectors as much
+        // as possible saves 110ms, and stretching the normal priority one by 2 the remaining 10ms.
+        assertEquals(
+                CollectorBudget.MAX_STRETCH * INTERVAL,
+                BUDGET.stretch(ShardStateCollector.class, INTERVAL));
+        assertEquals(
+                CollectorBudget.MAX_STRETCH * INTERVAL,
+                BUDGET.stretch(NodeStatsAllShardsMetricsCollector.class, INTERVAL));
+        assertEquals(2 * INTERVAL, BUDGET.stretch(CircuitBreakerCollector.class, INTERVAL));
+        assertEquals(INTERVAL, BUDGET.stretch(ThreadPoolMetricsCollector.class, INTERVAL));
+    }
+
+    @Test
+    public void testChargedTimeIsCounted() {
+        long start = CollectorBudget.currentThreadCpuNanos();
+        CollectorBudget.charge(TimeUnit.SECONDS.toNanos(1));
+        assertTrue(
+                CollectorBudget.currentThreadCpuNanos() - start >= TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    public void testHighPriorityCollectorsAreNeverStretched() {
+        record(ThreadPoolMetricsCollector.class, Priority.HIGH, 200);
+        record(ShardStateCollector.class, Priority.LOW, 10);
+        assertEquals(INTERVAL, BUDGET.stretch(ThreadPoolMetricsCollector.class, INTERVAL));
+        assertEquals(
+                CollectorBudget.MAX_STRETCH * INTERVAL,
+                BUDGET.stretch(ShardStateCollector.class, INTERVAL));
+    }
+
+    @Test
+    public void testStretchIsLiftedWhenCollectorGetsCheaper() {
+        record(ShardStateCollector.class, Priority.LOW, 100);
+        assertEquals(2 * INTERVAL, BUDGET.stretch(ShardStateCollector.class, INTERVAL));
+        for (int i = 0; i < 10; i++) {
+            record(ShardStateCollector.class, Priority.LOW, 0);
+        }
+        assertEquals(INTERVAL, BUDGET.stretch(ShardStateCollector.class, INTERVAL));
+    }
+
+    @Test
+    public void testDisabled() {
+        BUDGET.configure(0);
+        record(ShardStateCollector.class, Priority.LOW, 1000);
+        assertEquals(INTERVAL, BUDGET.stretch(ShardStateCollector.class, INTERVAL));
+    }
+
+    @Test
+    public void testCollectorReportsStretchedInterval() {
+        MetricsConfiguration.CONFIG_MAP.put(
+                ShardStateCollector.class, MetricsConfiguration.cdefault);
+        ShardStateCollector collector = new ShardStateCollector(null, null);
+        int defaultInterval = MetricsConfiguration.cdefault.samplingInterval;
+        assertEquals(defaultInterval, collector.getTimeInterval());
+
+        CollectorIntervals.INSTANCE.update(CollectorIntervals.parse("ShardStateCollector:60000"));
+        BUDGET.record(
+                ShardStateCollector.class, Priority.LOW, 60000, TimeUnit.SECONDS.toNanos(12));
+        assertEquals(60000, collector.getConfiguredTimeInterval());
+        // Stretched as much as possible, but capped to the longest interval.
+        assertEquals(CollectorIntervals.MAX_INTERVAL_MILLIS, collector.getTimeInterval());
+    }
+
+    private static void record(Class<?> collector, Priority priority, long cpuMillis) {
+        BUDGET.record(collector, priority, INTERVAL, TimeUnit.MILLISECONDS.toNanos(cpuMillis));
+    }
+}
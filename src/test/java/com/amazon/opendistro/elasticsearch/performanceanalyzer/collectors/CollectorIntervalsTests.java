@@ -0,0 +1,98 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.MetricsConfiguration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Test;
+
+public class CollectorIntervalsTests {
+
+    @After
+    public void cleanup() {
+        CollectorIntervals.INSTANCE.update(Collections.emptyMap());
+    }
+
+    @Test
+    public void testParseAndFormat() {
+        Map<String, Integer> intervals =
+                CollectorIntervals.parse(
+                        " NodeStatsAllShardsMetricsCollector : 30000,ThreadPoolMetricsCollector:5000");
+        Map<String, Integer> expected = new LinkedHashMap<>();
+        expected.put("NodeStatsAllShardsMetricsCollector", 30000);
+        expected.put("ThreadPoolMetricsCollector", 5000);
+        assertEquals(expected, intervals);
+        assertEquals(
+                "NodeStatsAllShardsMetricsCollector:30000,ThreadPoolMetricsCollector:5000",
+                CollectorIntervals.format(intervals));
+        assertTrue(CollectorIntervals.parse("").isEmpty());
+        assertEquals("", CollectorIntervals.format(Collections.emptyMap()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingCollector() {
+        CollectorIntervals.parse(":5000");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownCollector() {
+        CollectorIntervals.parse("NodeStatsAllShardMetricsCollector:30000");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMalformedInterval() {
+        CollectorIntervals.parse("ThreadPoolMetricsCollector:5s");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIntervalTooShort() {
+        CollectorIntervals.parse("ThreadPoolMetricsCollector:100");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIntervalTooLong() {
+        CollectorIntervals.format(
+                Collections.singletonMap(
+                        "ThreadPoolMetricsCollector", CollectorIntervals.MAX_INTERVAL_MILLIS + 1));
+    }
+
+    @Test
+    public void testCollectorReportsOverriddenInterval() {
+        MetricsConfiguration.CONFIG_MAP.put(
+                ThreadPoolMetricsCollector.class, MetricsConfiguration.cdefault);
+        MetricsConfiguration.CONFIG_MAP.put(
+                NodeDetailsCollector.class, MetricsConfiguration.cdefault);
+        ThreadPoolMetricsCollector threadPoolCollector = new ThreadPoolMetricsCollector();
+        NodeDetailsCollector nodeDetailsCollector = new NodeDetailsCollector(null);
+        int defaultInterval = MetricsConfiguration.cdefault.samplingInterval;
+        assertEquals(defaultInterval, threadPoolCollector.getTimeInterval());
+
+        CollectorIntervals.INSTANCE.update(
+                CollectorIntervals.parse("ThreadPoolMetricsCollector:30000"));
+        assertEquals(30000, threadPoolCollector.getTimeInterval());
+        assertEquals(defaultInterval, nodeDetailsCollector.getTimeInterval());
+
+        CollectorIntervals.INSTANCE.update(Collections.emptyMap());
+        assertEquals(defaultInterval, threadPoolCollector.getTimeInterval());
+    }
+}
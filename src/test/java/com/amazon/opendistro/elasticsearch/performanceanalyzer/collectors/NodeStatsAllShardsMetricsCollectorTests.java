@@ -102,6 +102,20 @@ public class NodeStatsAllShardsMetricsCollectorTests extends ESSingleNodeTestCas
         assertEquals(0, diffMetricValue.getRequestCacheMissCount());
     }
 
+    @Test
+    public void testCollectMetricsSuppressesUnchangedShards() {
+        createIndex(TEST_INDEX);
+        NodeStatsAllShardsMetricsCollector collector = new NodeStatsAllShardsMetricsCollector(null, 2);
+
+        collector.collectMetrics(startTimeInMills);
+        assertEquals(1, TestUtil.readEvents().size());
+        // Nothing changed, the shard is left out until its heartbeat.
+        collector.collectMetrics(startTimeInMills + 500);
+        assertEquals(0, TestUtil.readEvents().size());
+        collector.collectMetrics(startTimeInMills + 1000);
+        assertEquals(1, TestUtil.readEvents().size());
+    }
+
     private List<NodeStatsMetricsAllShardsPerCollectionStatus> readMetrics() throws IOException {
         List<Event> metrics = TestUtil.readEvents();
         assert metrics.size() == 2;
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.CustomMetricsLocationTestBase;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.listener.SearchLatencyAggregator;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.listener.SearchLatencyAggregator.Phase;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.reader_writer_shared.Event;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.util.TestUtil;
+import java.util.List;
+import org.elasticsearch.index.shard.ShardId;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SearchLatencyCollectorTests extends CustomMetricsLocationTestBase {
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        // clean metricQueue and the aggregated latencies before running every test
+        TestUtil.readEvents();
+        SearchLatencyAggregator.INSTANCE.flush();
+        System.setProperty("performanceanalyzer.metrics.log.enabled", "False");
+    }
+
+    @Test
+    public void testCollectMetrics() {
+        ShardId shardId = new ShardId("index", "_na_", 2);
+        SearchLatencyAggregator.INSTANCE.record(shardId, Phase.QUERY, false, 1_000_000L);
+        SearchLatencyAggregator.INSTANCE.record(shardId, Phase.FETCH, true, 3_000L);
+
+        SearchLatencyCollector collector = new SearchLatencyCollector();
+        collector.collectMetrics(System.currentTimeMillis());
+
+        List<Event> metrics = TestUtil.readEvents();
+        assertEquals(1, metrics.size());
+        String[] lines = metrics.get(0).value.split(System.lineSeparator());
+        assertEquals(3, lines.length);
+        assertTrue(lines[1].contains("\"IndexName\":\"index\""));
+        assertTrue(lines[1].contains("\"ShardID\":2"));
+        assertTrue(lines[1].contains("\"Phase\":\"query\""));
+        assertTrue(lines[1].contains("\"Failed\":false"));
+        assertTrue(lines[1].contains("\"Max\":1000"));
+        assertTrue(lines[2].contains("\"Phase\":\"fetch\""));
+        assertTrue(lines[2].contains("\"Failed\":true"));
+
+        // Nothing is written when no phase completed since the last run.
+        collector.collectMetrics(System.currentTimeMillis());
+        assertTrue(TestUtil.readEvents().isEmpty());
+    }
+}
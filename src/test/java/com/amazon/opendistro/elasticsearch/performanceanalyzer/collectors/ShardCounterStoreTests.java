@@ -0,0 +1,178 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.elasticsearch.index.shard.ShardId;
+import org.junit.Test;
+
+public class ShardCounterStoreTests {
+    private static final ShardId SHARD_0 = new ShardId("test", "_na_", 0);
+    private static final ShardId SHARD_1 = new ShardId("test", "_na_", 1);
+    private static final ShardId SHARD_2 = new ShardId("test", "_na_", 2);
+
+    // A counter column and a gauge column.
+    private final ShardCounterStore store = new ShardCounterStore(true, false);
+
+    @Test
+    public void testFirstRunReportsAbsoluteValues() {
+        record(SHARD_0, 10, 100);
+        assertEquals(10, value(SHARD_0, 0));
+        assertEquals(100, value(SHARD_0, 1));
+    }
+
+    @Test
+    public void testCountersReportDifference() {
+        record(SHARD_0, 10, 100);
+        record(SHARD_0, 25, 80);
+        assertEquals(15, value(SHARD_0, 0));
+        assertEquals(80, value(SHARD_0, 1));
+        // A counter reset, when the shard is relocated back for instance, is not negative.
+        record(SHARD_0, 5, 80);
+        assertEquals(0, value(SHARD_0, 0));
+    }
+
+    @Test
+    public void testNewShardReportsAbsoluteValues() {
+        store.beginCycle();
+        set(SHARD_0, 10, 100);
+        store.endCycle();
+        store.beginCycle();
+        set(SHARD_0, 12, 100);
+        set(SHARD_1, 7, 50);
+        store.endCycle();
+
+        assertEquals(2, value(SHARD_0, 0));
+        assertEquals(7, value(SHARD_1, 0));
+    }
+
+    @Test
+    public void testRemovedShardSlotIsReused() {
+        store.beginCycle();
+        set(SHARD_0, 10, 100);
+        int slot = store.slot(SHARD_1);
+        store.set(slot, 0, 20);
+        store.endCycle();
+
+        record(SHARD_0, 11, 100);
+        assertEquals(1, store.size());
+        assertNull(store.shardId(slot));
+
+        // The new shard takes the free slot, without the values of the shard that left.
+        store.beginCycle();
+        set(SHARD_0, 12, 100);
+        assertEquals(slot, store.slot(SHARD_2));
+        store.set(slot, 0, 30);
+        store.endCycle();
+        assertEquals(30, value(SHARD_2, 0));
+        assertEquals(2, store.slotLimit());
+    }
+
+    @Test
+    public void testRetainedShardIsNotReported() {
+        record(SHARD_0, 10, 100);
+        store.beginCycle();
+        store.retain(SHARD_0);
+        // A shard that was never read is not added.
+        store.retain(SHARD_1);
+        store.endCycle();
+        assertEquals(1, store.size());
+        assertFalse(store.isReported(0));
+
+        // The difference covers both runs.
+        record(SHARD_0, 30, 90);
+        assertTrue(store.isReported(0));
+        assertEquals(20, value(SHARD_0, 0));
+        assertEquals(90, value(SHARD_0, 1));
+    }
+
+    @Test
+    public void testUnchangedShardsAreReportedOnHeartbeat() {
+        store.setHeartbeat(3);
+        store.beginCycle();
+        int slot0 = store.slot(SHARD_0);
+        store.set(slot0, 0, 10);
+        store.set(slot0, 1, 100);
+        int slot1 = store.slot(SHARD_1);
+        store.set(slot1, 0, 10);
+        store.set(slot1, 1, 100);
+        store.endCycle();
+        // New shards are reported.
+        assertTrue(store.isReported(slot0));
+        assertTrue(store.isReported(slot1));
+
+        StringBuilder reported = new StringBuilder();
+        for (int run = 0; run < 6; run++) {
+            store.beginCycle();
+            store.set(store.slot(SHARD_0), 0, 10);
+            store.set(slot0, 1, 100);
+            // The counter of shard 1 moves in the second run, its gauge in the fourth one.
+            store.set(store.slot(SHARD_1), 0, run >= 1 ? 11 : 10);
+            store.set(slot1, 1, run >= 3 ? 90 : 100);
+            store.endCycle();
+            reported.append(store.isReported(slot0) ? '0' : '-');
+            reported.append(store.isReported(slot1) ? '1' : '-');
+            reported.append(' ');
+        }
+        assertEquals("-- -1 0- -1 -- 0- ", reported.toString());
+    }
+
+    @Test
+    public void testGrowsPastInitialCapacity() {
+        int shards = 10000;
+        for (int run = 1; run <= 3; run++) {
+            store.beginCycle();
+            for (int i = 0; i < shards; i++) {
+                int slot = store.slot(new ShardId("test", "_na_", i));
+                store.set(slot, 0, (long) run * i);
+                store.set(slot, 1, i);
+            }
+            store.endCycle();
+        }
+        assertEquals(shards, store.size());
+        for (int slot = 0; slot < store.slotLimit(); slot++) {
+            int id = store.shardId(slot).id();
+            assertEquals(id, store.value(slot, 0));
+            assertEquals(id, store.value(slot, 1));
+        }
+    }
+
+    private void record(ShardId shardId, long counter, long gauge) {
+        store.beginCycle();
+        set(shardId, counter, gauge);
+        store.endCycle();
+    }
+
+    private void set(ShardId shardId, long counter, long gauge) {
+        int slot = store.slot(shardId);
+        store.set(slot, 0, counter);
+        store.set(slot, 1, gauge);
+    }
+
+    private long value(ShardId shardId, int column) {
+        for (int slot = 0; slot < store.slotLimit(); slot++) {
+            if (shardId.equals(store.shardId(slot))) {
+                return store.value(slot, column);
+            }
+        }
+        throw new AssertionError(shardId + " is not in the store");
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.ESResources;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.util.Utils;
+import java.util.ArrayList;
+import java.util.List;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.shard.IndexShard;
+import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.test.ESSingleNodeTestCase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ShardStatsPoolTests extends ESSingleNodeTestCase {
+    private static final String TEST_INDEX = "test";
+    private IndicesService indicesService;
+    private List<IndexShard> shards;
+
+    @Before
+    public void init() {
+        indicesService = getInstanceFromNode(IndicesService.class);
+        ESResources.INSTANCE.setIndicesService(indicesService);
+        createIndex(
+                TEST_INDEX,
+                Settings.builder()
+                        .put("index.number_of_shards", 5)
+                        .put("index.number_of_replicas", 0)
+                        .build());
+        shards = new ArrayList<>(Utils.getShards().values());
+    }
+
+    @After
+    public void cleanup() {
+        ShardStatsPool.INSTANCE.configure(
+                0, TimeValue.timeValueMillis(ShardStatsPool.DEFAULT_DEADLINE_MILLIS));
+    }
+
+    @Test
+    public void testReadsOnCollectorThread() {
+        ShardStatsPool.INSTANCE.configure(0, TimeValue.timeValueSeconds(10));
+        assertStats();
+    }
+
+    @Test
+    public void testReadsOnPool() {
+        ShardStatsPool.INSTANCE.configure(2, TimeValue.timeValueSeconds(10));
+        assertStats();
+    }
+
+    @Test
+    public void testMissedDeadline() {
+        ShardStatsPool.INSTANCE.configure(2, TimeValue.ZERO);
+        boolean[] read = ShardStatsPool.INSTANCE.read(shards, (i, shard) -> true);
+        assertEquals(shards.size(), read.length);
+        for (boolean shardRead : read) {
+            assertFalse(shardRead);
+        }
+    }
+
+    @Test
+    public void testFailedShardIsNotRead() {
+        ShardStatsPool.INSTANCE.configure(2, TimeValue.timeValueSeconds(10));
+        boolean[] read =
+                ShardStatsPool.INSTANCE.read(
+                        shards,
+                        (i, shard) -> {
+                            if (i == 1) {
+                                throw new IllegalStateException("closed");
+                            }
+                            return i != 2;
+                        });
+        assertTrue(read[0]);
+        assertFalse(read[1]);
+        assertFalse(read[2]);
+        assertTrue(read[3]);
+    }
+
+    private void assertStats() {
+        long[] values = new long[shards.size() * ShardStatsProbe.CACHE_VALUES];
+        boolean[] read =
+                ShardStatsPool.INSTANCE.read(
+                        shards,
+                        (i, shard) ->
+                                ShardStatsProbe.readCacheStats(
+                                        indicesService.getIndicesQueryCache(),
+                                        shard,
+                                        values,
+                                        i * ShardStatsProbe.CACHE_VALUES));
+        assertEquals(5, read.length);
+        for (boolean shardRead : read) {
+            assertTrue(shardRead);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.ESResources;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors.NodeStatsAllShardsMetricsCollector.NodeStatsMetricsAllShardsPerCollectionStatus;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors.NodeStatsFixedShardsMetricsCollector.NodeStatsMetricsFixedShardsPerCollectionStatus;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.util.Utils;
+import java.util.Collections;
+import org.elasticsearch.action.admin.indices.stats.CommonStatsFlags;
+import org.elasticsearch.action.admin.indices.stats.ShardStats;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.shard.IndexShard;
+import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.test.ESSingleNodeTestCase;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ShardStatsProbeTests extends ESSingleNodeTestCase {
+    private static final String TEST_INDEX = "test";
+
+    private IndicesService indicesService;
+    private IndexShard shard;
+
+    @Before
+    public void init() {
+        indicesService = getInstanceFromNode(IndicesService.class);
+        ESResources.INSTANCE.setIndicesService(indicesService);
+        createIndex(
+                TEST_INDEX,
+                Settings.builder()
+                        .put("index.number_of_shards", 1)
+                        .put("index.number_of_replicas", 0)
+                        .build());
+        client().prepareIndex(TEST_INDEX, "_doc", "1").setSource("field", "value").get();
+        client().admin().indices().prepareRefresh(TEST_INDEX).get();
+        shard = Utils.getShards().values().iterator().next();
+    }
+
+    @Test
+    public void testCacheStatsMatchShardStats() {
+        long[] values = new long[ShardStatsProbe.CACHE_VALUES + 1];
+        assertTrue(
+                ShardStatsProbe.readCacheStats(
+                        indicesService.getIndicesQueryCache(), shard, values, 1));
+        NodeStatsMetricsAllShardsPerCollectionStatus expected =
+                new NodeStatsMetricsAllShardsPerCollectionStatus(
+                        shardStats(
+                                CommonStatsFlags.Flag.QueryCache,
+                                CommonStatsFlags.Flag.FieldData,
+                                CommonStatsFlags.Flag.RequestCache));
+        NodeStatsMetricsAllShardsPerCollectionStatus actual =
+                new NodeStatsMetricsAllShardsPerCollectionStatus(
+                        values[1], values[2], values[3], values[4], values[5], values[6],
+                        values[7], values[8], values[9]);
+        assertEquals(expected.serialize(), actual.serialize());
+    }
+
+    @Test
+    public void testFixedStatsMatchShardStats() {
+        NodeStatsFixedShardsMetricsCollector collector =
+                new NodeStatsFixedShardsMetricsCollector(null);
+        long[] values = new long[ShardStatsProbe.FIXED_VALUES];
+        ShardStatsProbe probe = new ShardStatsProbe();
+        assertTrue(probe.readFixedStats(shard, values, 0));
+
+        ShardStats shardStats =
+                shardStats(
+                        CommonStatsFlags.Flag.Segments,
+                        CommonStatsFlags.Flag.Store,
+                        CommonStatsFlags.Flag.Indexing,
+                        CommonStatsFlags.Flag.Merge,
+                        CommonStatsFlags.Flag.Flush,
+                        CommonStatsFlags.Flag.Refresh);
+        // The index buffer is only read from the shards of the collector.
+        values[8] = 0;
+        assertEquals(
+                collector.new NodeStatsMetricsFixedShardsPerCollectionStatus(shardStats).serialize(),
+                collector.new NodeStatsMetricsFixedShardsPerCollectionStatus(values, 0).serialize());
+    }
+
+    @Test
+    public void testStoreSizeIsReadAgainAfterRefresh() {
+        ShardStatsProbe probe = new ShardStatsProbe();
+        long[] values = new long[ShardStatsProbe.FIXED_VALUES];
+        probe.readFixedStats(shard, values, 0);
+        long size = values[20];
+
+        client().prepareIndex(TEST_INDEX, "_doc", "2").setSource("field", "value").get();
+        client().admin().indices().prepareRefresh(TEST_INDEX).get();
+        probe.readFixedStats(shard, values, 0);
+        assertTrue(values[20] > size);
+
+        probe.retainShards(Collections.emptySet());
+        probe.readFixedStats(shard, values, 0);
+        assertEquals(shard.storeStats().getSizeInBytes(), values[20]);
+    }
+
+    private ShardStats shardStats(CommonStatsFlags.Flag... flags) {
+        return Utils.indexShardStats(indicesService, shard, new CommonStatsFlags(flags))
+                .getShards()[0];
+    }
+}
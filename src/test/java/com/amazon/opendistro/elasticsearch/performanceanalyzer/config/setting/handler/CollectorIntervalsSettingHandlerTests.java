@@ -0,0 +1,93 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.config.setting.handler;
+
+import static com.amazon.opendistro.elasticsearch.performanceanalyzer.config.setting.PerformanceAnalyzerClusterSettings.COLLECTOR_INTERVALS_SETTING;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.verify;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors.CollectorIntervals;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.config.setting.ClusterSettingsManager;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+public class CollectorIntervalsSettingHandlerTests {
+  private CollectorIntervalsSettingHandler handler;
+
+  @Mock private ClusterSettingsManager clusterSettingsManager;
+
+  @Before
+  public void init() {
+    initMocks(this);
+    handler = new CollectorIntervalsSettingHandler(clusterSettingsManager);
+  }
+
+  @After
+  public void cleanup() {
+    CollectorIntervals.INSTANCE.update(Collections.emptyMap());
+  }
+
+  @Test
+  public void testOnSettingUpdate() {
+    handler.onSettingUpdate("NodeStatsAllShardsMetricsCollector:30000");
+    assertEquals(
+        Collections.singletonMap("NodeStatsAllShardsMetricsCollector", 30000),
+        handler.getCollectorIntervals());
+
+    // An invalid value keeps the last valid intervals.
+    handler.onSettingUpdate("NodeStatsAllShardsMetricsCollector:0");
+    handler.onSettingUpdate(null);
+    assertEquals(
+        Collections.singletonMap("NodeStatsAllShardsMetricsCollector", 30000),
+        handler.getCollectorIntervals());
+
+    handler.onSettingUpdate("");
+    assertEquals(Collections.emptyMap(), handler.getCollectorIntervals());
+  }
+
+  @Test
+  public void testUpdateMergesIntervals() {
+    handler.onSettingUpdate("NodeStatsAllShardsMetricsCollector:30000,ShardStateCollector:60000");
+
+    Map<String, Integer> intervals = new HashMap<>();
+    intervals.put("ShardStateCollector", null);
+    intervals.put("ThreadPoolMetricsCollector", 10000);
+    handler.updateCollectorIntervalsSetting(intervals);
+    verify(clusterSettingsManager)
+        .updateSetting(
+            COLLECTOR_INTERVALS_SETTING,
+            "NodeStatsAllShardsMetricsCollector:30000,ThreadPoolMetricsCollector:10000");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUpdateRejectsInvalidInterval() {
+    handler.updateCollectorIntervalsSetting(
+        Collections.singletonMap("ThreadPoolMetricsCollector", 10));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUpdateRejectsUnknownCollector() {
+    handler.updateCollectorIntervalsSetting(
+        Collections.singletonMap("ThreadPoolCollector", 10000));
+  }
+}
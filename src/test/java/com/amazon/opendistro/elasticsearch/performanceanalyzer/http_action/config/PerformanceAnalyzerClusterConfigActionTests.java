@@ -17,10 +17,14 @@ package com.amazon.opendistro.elasticsearch.performanceanalyzer.http_action.conf
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.MockitoAnnotations.initMocks;
 
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.config.PerformanceAnalyzerController;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.config.setting.ClusterSettingsManager;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.config.setting.PerformanceAnalyzerClusterSettings;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.config.setting.handler.CollectorIntervalsSettingHandler;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.config.setting.handler.NodeStatsSettingHandler;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.config.setting.handler.PerformanceAnalyzerClusterSettingHandler;
 import java.io.IOException;
@@ -61,6 +65,7 @@ public class PerformanceAnalyzerClusterConfigActionTests {
   private ClusterSettings clusterSettings;
   private PerformanceAnalyzerClusterSettingHandler clusterSettingHandler;
   private NodeStatsSettingHandler nodeStatsSettingHandler;
+  private CollectorIntervalsSettingHandler collectorIntervalsSettingHandler;
 
   @Mock private PerformanceAnalyzerController controller;
   @Mock private ClusterSettingsManager clusterSettingsManager;
@@ -77,7 +82,9 @@ public class PerformanceAnalyzerClusterConfigActionTests {
     restController = new RestController(Collections.emptySet(), null, nodeClient, circuitBreakerService, usageService);
     clusterSettingHandler = new PerformanceAnalyzerClusterSettingHandler(controller, clusterSettingsManager);
     nodeStatsSettingHandler = new NodeStatsSettingHandler(controller, clusterSettingsManager);
-    configAction = new PerformanceAnalyzerClusterConfigAction(Settings.EMPTY, restController, clusterSettingHandler, nodeStatsSettingHandler);
+    collectorIntervalsSettingHandler = new CollectorIntervalsSettingHandler(clusterSettingsManager);
+    configAction = new PerformanceAnalyzerClusterConfigAction(Settings.EMPTY, restController, clusterSettingHandler,
+        nodeStatsSettingHandler, collectorIntervalsSettingHandler);
     restController.registerHandler(configAction);
   }
 
@@ -115,6 +122,39 @@ public class PerformanceAnalyzerClusterConfigActionTests {
   @Test
   public void testUpdatePerformanceAnalyzerSetting() throws IOException {
     testWithRequestPath(PerformanceAnalyzerClusterConfigAction.PA_CLUSTER_CONFIG_PATH);
+    verify(clusterSettingsManager).updateSetting(
+        PerformanceAnalyzerClusterSettings.COLLECTOR_INTERVALS_SETTING, "NodeStatsAllShardsMetricsCollector:30000");
+  }
+
+  @Test
+  public void testRejectsIntervalOfWrongType() throws IOException {
+    testRejectedInterval("NodeStatsAllShardsMetricsCollector", "30s");
+  }
+
+  @Test
+  public void testRejectsUnknownCollector() throws IOException {
+    testRejectedInterval("NodeStatsAllShardMetricsCollector", 30000);
+  }
+
+  private void testRejectedInterval(String collector, Object interval) throws IOException {
+    final XContentBuilder builder = XContentFactory.jsonBuilder()
+        .startObject()
+          .field(PerformanceAnalyzerClusterConfigAction.ENABLED, true)
+          .startObject(PerformanceAnalyzerClusterConfigAction.COLLECTOR_INTERVALS)
+            .field(collector, interval)
+          .endObject()
+        .endObject();
+    final FakeRestRequest fakeRestRequest = new FakeRestRequest.Builder(NamedXContentRegistry.EMPTY)
+        .withMethod(RestRequest.Method.POST)
+        .withPath(PerformanceAnalyzerClusterConfigAction.PA_CLUSTER_CONFIG_PATH)
+        .withContent(BytesReference.bytes(builder), builder.contentType())
+        .build();
+    final FakeRestChannel channel = new FakeRestChannel(fakeRestRequest, true, 10);
+    restController.dispatchRequest(fakeRestRequest, channel, new ThreadContext(Settings.EMPTY));
+
+    assertEquals(RestStatus.BAD_REQUEST, channel.capturedResponse().status());
+    assertTrue(channel.capturedResponse().content().utf8ToString().contains(collector));
+    verifyZeroInteractions(clusterSettingsManager);
   }
 
   private void testWithRequestPath(String requestPath) throws IOException {
@@ -127,6 +167,7 @@ public class PerformanceAnalyzerClusterConfigActionTests {
     assertTrue(responseStr.contains(PerformanceAnalyzerClusterConfigAction.CURRENT));
     assertTrue(responseStr.contains(PerformanceAnalyzerClusterConfigAction.SHARDS_PER_COLLECTION));
     assertTrue(responseStr.contains(PerformanceAnalyzerClusterConfigAction.BATCH_METRICS_RETENTION_PERIOD_MINUTES));
+    assertTrue(responseStr.contains(PerformanceAnalyzerClusterConfigAction.COLLECTOR_INTERVALS));
   }
 
   private FakeRestRequest buildRequest(String requestPath) throws IOException {
@@ -134,6 +175,9 @@ public class PerformanceAnalyzerClusterConfigActionTests {
         .startObject()
           .field(PerformanceAnalyzerClusterConfigAction.ENABLED, true)
           .field(PerformanceAnalyzerClusterConfigAction.SHARDS_PER_COLLECTION, 1)
+          .startObject(PerformanceAnalyzerClusterConfigAction.COLLECTOR_INTERVALS)
+            .field("NodeStatsAllShardsMetricsCollector", 30000)
+          .endObject()
         .endObject();
 
     return new FakeRestRequest.Builder(NamedXContentRegistry.EMPTY)
@@ -183,9 +183,59 @@ public class PerformanceAnalyzerConfigActionTests {
       assertTrue(responseStr.contains(PerformanceAnalyzerConfigAction.SHARDS_PER_COLLECTION));
       assertTrue(responseStr.contains(PerformanceAnalyzerConfigAction.BATCH_METRICS_ENABLED));
       assertTrue(responseStr.contains(PerformanceAnalyzerConfigAction.BATCH_METRICS_RETENTION_PERIOD_MINUTES));
+      assertTrue(responseStr.contains(PerformanceAnalyzerConfigAction.REQUEST_SAMPLING_RATE));
+      assertTrue(responseStr.contains(PerformanceAnalyzerConfigAction.REQUEST_EVENTS_PER_SECOND_BUDGET));
     }
   }
 
+  @Test
+  public void testUpdateRequestSampling() throws IOException {
+    final XContentBuilder builder = XContentFactory.jsonBuilder()
+        .startObject()
+        .field(PerformanceAnalyzerConfigAction.REQUEST_SAMPLING_RATE, 0.5)
+        .field(PerformanceAnalyzerConfigAction.REQUEST_EVENTS_PER_SECOND_BUDGET, 1000)
+        .endObject();
+    final FakeRestChannel channel = dispatch(builder);
+    assertEquals(RestStatus.OK, channel.capturedResponse().status());
+    Mockito.verify(controller).updateRequestSamplingRate(0.5);
+    Mockito.verify(controller).updateRequestEventsPerSecondBudget(1000);
+  }
+
+  @Test
+  public void testUpdateRequestSamplingWithInvalidRate() throws IOException {
+    final XContentBuilder builder = XContentFactory.jsonBuilder()
+        .startObject()
+        .field(PerformanceAnalyzerConfigAction.REQUEST_SAMPLING_RATE, 2)
+        .endObject();
+    final FakeRestChannel channel = dispatch(builder);
+    assertEquals(RestStatus.BAD_REQUEST, channel.capturedResponse().status());
+    Mockito.verify(controller, Mockito.never()).updateRequestSamplingRate(Mockito.anyDouble());
+  }
+
+  @Test
+  public void testUpdateRequestSamplingWithInvalidBudget() throws IOException {
+    final XContentBuilder builder = XContentFactory.jsonBuilder()
+        .startObject()
+        .field(PerformanceAnalyzerConfigAction.REQUEST_SAMPLING_RATE, 0.5)
+        .field(PerformanceAnalyzerConfigAction.REQUEST_EVENTS_PER_SECOND_BUDGET, -1)
+        .endObject();
+    final FakeRestChannel channel = dispatch(builder);
+    assertEquals(RestStatus.BAD_REQUEST, channel.capturedResponse().status());
+    Mockito.verify(controller, Mockito.never()).updateRequestSamplingRate(Mockito.anyDouble());
+    Mockito.verify(controller, Mockito.never()).updateRequestEventsPerSecondBudget(Mockito.anyInt());
+  }
+
+  private FakeRestChannel dispatch(XContentBuilder builder) {
+    final FakeRestRequest fakeRestRequest = new FakeRestRequest.Builder(NamedXContentRegistry.EMPTY)
+        .withMethod(RestRequest.Method.POST)
+        .withPath(PerformanceAnalyzerConfigAction.PA_CONFIG_PATH)
+        .withContent(BytesReference.bytes(builder), builder.contentType())
+        .build();
+    final FakeRestChannel channel = new FakeRestChannel(fakeRestRequest, true, 10);
+    restController.dispatchRequest(fakeRestRequest, channel, new ThreadContext(Settings.EMPTY));
+    return channel;
+  }
+
   private FakeRestRequest buildRequest(String requestPath, boolean shouldEnable) throws IOException {
     final XContentBuilder builder = XContentFactory.jsonBuilder()
         .startObject()
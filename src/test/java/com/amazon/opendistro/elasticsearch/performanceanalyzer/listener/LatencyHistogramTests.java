@@ -0,0 +1,82 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.listener;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LatencyHistogramTests {
+    @Test
+    public void testBucketBoundaries() {
+        for (int i = 0; i < LatencyHistogram.BUCKET_COUNT; i++) {
+            long low = LatencyHistogram.lowestValueOfBucket(i);
+            long high = LatencyHistogram.highestValueOfBucket(i);
+            assertEquals(i, LatencyHistogram.bucketIndex(low));
+            assertEquals(i, LatencyHistogram.bucketIndex(high));
+            if (i > 0) {
+                assertEquals(LatencyHistogram.highestValueOfBucket(i - 1) + 1, low);
+            }
+            // The width of a bucket is at most 1/16 of its lowest value.
+            assertTrue(i < LatencyHistogram.SUB_BUCKET_COUNT || (high - low + 1) * 16 <= low);
+        }
+        assertEquals(
+                LatencyHistogram.MAX_VALUE,
+                LatencyHistogram.highestValueOfBucket(LatencyHistogram.BUCKET_COUNT - 1));
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getValueAtPercentile(50));
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500500000L, histogram.getSum());
+        assertEquals(1000000L, histogram.getMax());
+        assertWithin(500000L, histogram.getValueAtPercentile(50));
+        assertWithin(990000L, histogram.getValueAtPercentile(99));
+        assertWithin(999000L, histogram.getValueAtPercentile(99.9));
+        assertEquals(1000000L, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testValuesAreClamped() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-1);
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(2, histogram.getCount());
+        assertEquals(LatencyHistogram.MAX_VALUE, histogram.getMax());
+        assertEquals("0:1," + (LatencyHistogram.BUCKET_COUNT - 1) + ":1", histogram.getBuckets());
+    }
+
+    @Test
+    public void testBuckets() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(3);
+        histogram.record(3);
+        histogram.record(40);
+        assertEquals("3:2," + LatencyHistogram.bucketIndex(40) + ":1", histogram.getBuckets());
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(actual + " is not within 6.25% of " + expected,
+                actual >= expected && actual <= expected + expected / 16);
+    }
+}
@@ -28,7 +28,10 @@ import com.amazon.opendistro.elasticsearch.performanceanalyzer.jvm.ThreadList;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.AllMetrics;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.MetricsConfiguration;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.PerformanceAnalyzerMetrics;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.reader_writer_shared.Event;
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.util.TestUtil;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.writer.RequestEventSampler;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.commons.lang3.SystemUtils;
@@ -67,6 +70,8 @@ public class PerformanceAnalyzerSearchListenerTests {
   public void init() {
     initMocks(this);
     Mockito.when(controller.isPerformanceAnalyzerEnabled()).thenReturn(true);
+    Mockito.when(controller.getRequestEventSampler()).thenReturn(new RequestEventSampler());
+    Mockito.when(controller.getSearchEventMode()).thenReturn(SearchEventMode.START_FINISH);
 
     MetricsConfiguration.CONFIG_MAP.put(ThreadList.class, MetricsConfiguration.cdefault);
     searchListener = new PerformanceAnalyzerSearchListener(controller);
@@ -166,6 +171,32 @@ public class PerformanceAnalyzerSearchListenerTests {
     assertTrue(jsonStrs.get(3).contains(AllMetrics.CommonDimension.SHARD_ID.toString()));
   }
 
+  @Test
+  public void testSingleEventMode() {
+    Mockito.when(controller.getSearchEventMode()).thenReturn(SearchEventMode.SINGLE_EVENT);
+    initializeValidSearchContext(true);
+    searchListener.onPreQueryPhase(searchContext);
+    assertTrue(TestUtil.readEvents().isEmpty());
+
+    searchListener.onQueryPhase(searchContext, 2_000_000L);
+    List<Event> events = TestUtil.readEvents();
+    assertEquals(1, events.size());
+    assertTrue(events.get(0).key.endsWith("/" + PerformanceAnalyzerSearchListener.PHASE_FILE_NAME));
+    List<String> lines = Arrays.asList(events.get(0).value.split("\n"));
+    assertEquals(7, lines.size());
+    long startTime = Long.parseLong(lines.get(1).split(":")[1]);
+    long finishTime = Long.parseLong(lines.get(2).split(":")[1]);
+    assertEquals(2, finishTime - startTime);
+    assertEquals(PerformanceAnalyzerSearchListener.TOOK_IN_NANOS + ":2000000", lines.get(3));
+    assertTrue(lines.get(4).contains("false"));
+
+    searchListener.onPreFetchPhase(searchContext);
+    searchListener.onFailedFetchPhase(searchContext);
+    List<String> jsonStrs = TestUtil.readMetricsInJsonString(7);
+    assertTrue(jsonStrs.get(2).startsWith(PerformanceAnalyzerSearchListener.TOOK_IN_NANOS));
+    assertTrue(jsonStrs.get(3).contains("true"));
+  }
+
   @Ignore
   @Test
   public void testInvalidSearchContext() {
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.listener;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.config.setting.PerformanceAnalyzerNodeSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.junit.Test;
+
+public class SearchEventModeTests {
+    private static final String MODE_KEY =
+            PerformanceAnalyzerNodeSettings.SEARCH_EVENT_MODE_SETTING.getKey();
+    private static final String READER_KEY =
+            PerformanceAnalyzerNodeSettings.SEARCH_EVENT_READER_ENABLED_SETTING.getKey();
+
+    @Test
+    public void testDefaultMode() {
+        assertEquals(
+                SearchEventMode.START_FINISH,
+                PerformanceAnalyzerNodeSettings.SEARCH_EVENT_MODE_SETTING.get(Settings.EMPTY));
+    }
+
+    @Test
+    public void testSingleEventModeNeedsReader() {
+        assertNeedsReader(SearchEventMode.SINGLE_EVENT);
+    }
+
+    @Test
+    public void testHistogramModeNeedsReader() {
+        assertNeedsReader(SearchEventMode.HISTOGRAM);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownMode() {
+        SearchEventMode.fromString("phases");
+    }
+
+    private static void assertNeedsReader(SearchEventMode mode) {
+        Settings settings = Settings.builder().put(MODE_KEY, mode.toString()).build();
+        try {
+            PerformanceAnalyzerNodeSettings.SEARCH_EVENT_MODE_SETTING.get(settings);
+            fail("The " + mode + " mode should need a reader that parses its events");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains(READER_KEY));
+        }
+        Settings withReader = Settings.builder().put(settings).put(READER_KEY, true).build();
+        assertEquals(
+                mode, PerformanceAnalyzerNodeSettings.SEARCH_EVENT_MODE_SETTING.get(withReader));
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.listener;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.listener.SearchLatencyAggregator.Phase;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.listener.SearchLatencyAggregator.ShardLatencies;
+import java.util.Map;
+import org.elasticsearch.index.shard.ShardId;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SearchLatencyAggregatorTests {
+    private final ShardId shardId = new ShardId("index", "_na_", 1);
+
+    @Before
+    public void init() {
+        SearchLatencyAggregator.INSTANCE.flush();
+    }
+
+    @Test
+    public void testFlushHandsOverHistograms() {
+        SearchLatencyAggregator.INSTANCE.record(shardId, Phase.QUERY, false, 2_000_000L);
+        SearchLatencyAggregator.INSTANCE.record(shardId, Phase.QUERY, false, 4_000_000L);
+        SearchLatencyAggregator.INSTANCE.record(shardId, Phase.FETCH, true, 1_000L);
+
+        Map<ShardId, ShardLatencies> flushed = SearchLatencyAggregator.INSTANCE.flush();
+        assertEquals(1, flushed.size());
+        ShardLatencies latencies = flushed.get(shardId);
+        assertEquals(2, latencies.get(Phase.QUERY, false).getCount());
+        assertEquals(4000L, latencies.get(Phase.QUERY, false).getMax());
+        assertNull(latencies.get(Phase.QUERY, true));
+        assertNull(latencies.get(Phase.FETCH, false));
+        assertEquals(1L, latencies.get(Phase.FETCH, true).getSum());
+
+        assertTrue(SearchLatencyAggregator.INSTANCE.flush().isEmpty());
+    }
+}
@@ -16,10 +16,14 @@
 package com.amazon.opendistro.elasticsearch.performanceanalyzer.transport;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.verify;
 import static org.mockito.MockitoAnnotations.initMocks;
 
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors.StatsCollector;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.util.TestUtil;
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.commons.lang3.SystemUtils;
 import org.elasticsearch.transport.TransportChannel;
 import org.elasticsearch.transport.TransportResponse;
@@ -56,4 +60,21 @@ public class PerformanceAnalyzerTransportChannelTests {
         channel.sendResponse(exception);
         verify(originalChannel).sendResponse(exception);
     }
+
+    @Test
+    public void testFinishIsEmittedOnce() throws IOException {
+        TestUtil.readEvents();
+        channel.sendResponse(response);
+        assertEquals(1, TestUtil.readEvents().size());
+
+        int doubleCompletions = doubleCompletions();
+        channel.sendResponse(new Exception("dummy exception"));
+        assertTrue(TestUtil.readEvents().isEmpty());
+        assertEquals(doubleCompletions + 1, doubleCompletions());
+    }
+
+    private static int doubleCompletions() {
+        AtomicInteger count = StatsCollector.instance().getCounters().get(PerformanceAnalyzerTransportChannel.DOUBLE_COMPLETION_METRIC);
+        return count == null ? 0 : count.intValue();
+    }
 }
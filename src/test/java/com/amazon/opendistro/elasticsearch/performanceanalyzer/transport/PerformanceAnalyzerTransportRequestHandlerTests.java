@@ -20,6 +20,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.MockitoAnnotations.initMocks;
 
 import com.amazon.opendistro.elasticsearch.performanceanalyzer.config.PerformanceAnalyzerController;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.writer.RequestEventSampler;
 import org.apache.commons.lang3.SystemUtils;
 import org.elasticsearch.action.bulk.BulkItemRequest;
 import org.elasticsearch.action.bulk.BulkShardRequest;
@@ -57,6 +58,7 @@ public class PerformanceAnalyzerTransportRequestHandlerTests {
     handler = new PerformanceAnalyzerTransportRequestHandler(transportRequestHandler, controller);
     handler.set(transportRequestHandler);
     Mockito.when(controller.isPerformanceAnalyzerEnabled()).thenReturn(true);
+    Mockito.when(controller.getRequestEventSampler()).thenReturn(new RequestEventSampler());
   }
 
   @Test
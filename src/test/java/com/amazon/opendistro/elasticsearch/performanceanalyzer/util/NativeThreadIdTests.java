@@ -0,0 +1,56 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.ThreadIDUtil;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+
+public class NativeThreadIdTests {
+    @Test
+    public void testMatchesThreadIDUtil() {
+        long expected = ThreadIDUtil.INSTANCE.getNativeCurrentThreadId();
+        assertEquals(expected, NativeThreadId.current());
+        assertEquals(String.valueOf(expected), NativeThreadId.currentAsString());
+    }
+
+    @Test
+    public void testEachThreadResolvesItsOwnId() throws InterruptedException {
+        AtomicLong expected = new AtomicLong();
+        AtomicReference<String> actual = new AtomicReference<>();
+        Thread thread =
+                new Thread(
+                        () -> {
+                            expected.set(ThreadIDUtil.INSTANCE.getNativeCurrentThreadId());
+                            actual.set(NativeThreadId.currentAsString());
+                        });
+        thread.start();
+        thread.join();
+        assertEquals(String.valueOf(expected.get()), actual.get());
+    }
+
+    @Test
+    public void testRenderingIsCached() {
+        if (NativeThreadId.current() != -1) {
+            assertSame(NativeThreadId.currentAsString(), NativeThreadId.currentAsString());
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.Test;
+
+public class RequestIdGeneratorTests {
+    @Test
+    public void testIdsOfAThreadShareItsPrefix() {
+        long first = RequestIdGenerator.next();
+        long second = RequestIdGenerator.next();
+        assertEquals(Thread.currentThread().getId(), first >>> 32);
+        assertEquals(first >>> 32, second >>> 32);
+        assertEquals(first + 1, second);
+    }
+
+    @Test
+    public void testIdsAreUniqueAcrossThreads() throws InterruptedException {
+        int threads = 8;
+        int idsPerThread = 1000;
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        List<Thread> generators = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            generators.add(
+                    new Thread(
+                            () -> {
+                                for (int j = 0; j < idsPerThread; j++) {
+                                    assertTrue(ids.add(RequestIdGenerator.next()));
+                                }
+                            }));
+        }
+        for (Thread generator : generators) {
+            generator.start();
+        }
+        for (Thread generator : generators) {
+            generator.join();
+        }
+        assertEquals(threads * idsPerThread, ids.size());
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.util;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.ESResources;
+import java.util.Map;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.shard.IndexShard;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.test.ESSingleNodeTestCase;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ShardRegistryTests extends ESSingleNodeTestCase {
+    private static final String TEST_INDEX = "test";
+
+    @Before
+    public void init() {
+        ESResources.INSTANCE.setIndicesService(getInstanceFromNode(IndicesService.class));
+        createIndex(
+                TEST_INDEX,
+                Settings.builder()
+                        .put("index.number_of_shards", 2)
+                        .put("index.number_of_replicas", 0)
+                        .build());
+    }
+
+    @Test
+    public void testUntrackedLooksUpShards() {
+        ShardRegistry registry = new ShardRegistry();
+        Map<ShardId, IndexShard> shards = registry.getShards();
+        assertEquals(2, shards.size());
+        assertEquals(Utils.getShards().keySet(), shards.keySet());
+    }
+
+    @Test
+    public void testTracksShardLifecycle() {
+        Map<ShardId, IndexShard> indexShards = Utils.getShards();
+        ShardRegistry registry = new ShardRegistry();
+        registry.startTracking();
+        assertTrue(registry.getShards().isEmpty());
+
+        for (IndexShard indexShard : indexShards.values()) {
+            registry.afterIndexShardCreated(indexShard);
+        }
+        Map<ShardId, IndexShard> shards = registry.getShards();
+        assertEquals(indexShards, shards);
+        // The snapshot is only copied again once the shards change.
+        assertSame(shards, registry.getShards());
+
+        IndexShard closed = indexShards.values().iterator().next();
+        registry.beforeIndexShardClosed(closed.shardId(), closed, Settings.EMPTY);
+        assertEquals(1, registry.getShards().size());
+        assertFalse(registry.getShards().containsKey(closed.shardId()));
+        assertEquals(2, shards.size());
+    }
+}
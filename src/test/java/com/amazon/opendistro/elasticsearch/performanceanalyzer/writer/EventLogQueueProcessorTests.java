@@ -0,0 +1,143 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.writer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.MetricsConfiguration;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.reader_writer_shared.Event;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.junit.Test;
+
+public class EventLogQueueProcessorTests {
+    private static final long INTERVAL = MetricsConfiguration.SAMPLING_INTERVAL;
+    private static final long NOW = 1566413970000L + INTERVAL / 2;
+    private static final long NEWEST = 1566413970000L;
+
+    private final RecordingWriter writer = new RecordingWriter();
+
+    @Test
+    public void testTwoOpenBuckets() {
+        EventLogQueueProcessor processor = new EventLogQueueProcessor(writer, 0, 0, null);
+        processor.persist(
+                events(NEWEST - 2 * INTERVAL, NEWEST - INTERVAL, NEWEST, NEWEST + INTERVAL), NOW);
+
+        assertEquals(
+                Arrays.asList(NEWEST - INTERVAL, NEWEST), new ArrayList<>(writer.written.keySet()));
+        assertTrue(writer.renamed.isEmpty());
+
+        processor.persist(Collections.emptyList(), NOW + INTERVAL);
+        assertEquals(Collections.singletonList(NEWEST - INTERVAL), writer.renamed);
+        processor.persist(Collections.emptyList(), NOW + 2 * INTERVAL);
+        assertEquals(Arrays.asList(NEWEST - INTERVAL, NEWEST), writer.renamed);
+    }
+
+    @Test
+    public void testLateEventsReachOpenBuckets() {
+        EventLogQueueProcessor processor = new EventLogQueueProcessor(writer, 0, 0, null, 4);
+        processor.persist(events(NEWEST), NOW);
+        processor.persist(Collections.emptyList(), NOW + INTERVAL);
+        processor.persist(Collections.emptyList(), NOW + 2 * INTERVAL);
+        // Events held back by a pause of three intervals still reach their bucket.
+        processor.persist(events(NEWEST, NEWEST), NOW + 3 * INTERVAL);
+        assertEquals(3, (int) writer.written.get(NEWEST));
+        assertTrue(writer.renamed.isEmpty());
+
+        processor.persist(events(NEWEST), NOW + 4 * INTERVAL);
+        assertEquals(3, (int) writer.written.get(NEWEST));
+        assertEquals(Collections.singletonList(NEWEST), writer.renamed);
+    }
+
+    @Test
+    public void testBucketsSkippedByPauseAreSealed() {
+        EventLogQueueProcessor processor = new EventLogQueueProcessor(writer, 0, 0, null, 3);
+        processor.persist(events(NEWEST - 2 * INTERVAL, NEWEST - INTERVAL, NEWEST), NOW);
+        processor.persist(Collections.emptyList(), NOW + 10 * INTERVAL);
+        assertEquals(
+                Arrays.asList(NEWEST - 2 * INTERVAL, NEWEST - INTERVAL, NEWEST), writer.renamed);
+    }
+
+    @Test
+    public void testUnalignedEventsAreDropped() {
+        EventLogQueueProcessor processor = new EventLogQueueProcessor(writer, 0, 0, null);
+        processor.persist(events(NEWEST - 1), NOW);
+        assertTrue(writer.written.isEmpty());
+    }
+
+    @Test
+    public void testSubscribersReceiveSealedBuckets() {
+        EventLogQueueProcessor processor = new EventLogQueueProcessor(writer, 0, 0, null);
+        // The bucket opened before the subscription is not published, it would be partial.
+        processor.persist(events(NEWEST - INTERVAL), NOW);
+        Map<Long, List<Event>> published = new TreeMap<>();
+        List<EventView> views = new ArrayList<>();
+        processor.subscribe(
+                (timeBucket, events) -> {
+                    List<Event> copies = new ArrayList<>();
+                    events.forEachRemaining(
+                            view -> {
+                                views.add(view);
+                                copies.add(view.toEvent());
+                            });
+                    published.put(timeBucket, copies);
+                });
+        processor.subscribe(
+                (timeBucket, events) -> {
+                    throw new IllegalStateException("failing subscriber");
+                });
+
+        processor.persist(events(NEWEST - INTERVAL, NEWEST, NEWEST), NOW);
+        assertTrue(published.isEmpty());
+        processor.persist(events(NEWEST), NOW + INTERVAL);
+        processor.persist(Collections.emptyList(), NOW + 2 * INTERVAL);
+
+        assertEquals(Collections.singletonList(NEWEST), new ArrayList<>(published.keySet()));
+        assertEquals(3, published.get(NEWEST).size());
+        assertEquals(NEWEST, published.get(NEWEST).get(0).epoch);
+        assertTrue(views.stream().allMatch(view -> view == views.get(0)));
+        assertEquals(Arrays.asList(NEWEST - INTERVAL, NEWEST), writer.renamed);
+    }
+
+    private static List<Event> events(long... epochs) {
+        List<Event> events = new ArrayList<>();
+        for (long epoch : epochs) {
+            events.add(new Event("tcp_metrics", "", epoch));
+        }
+        return events;
+    }
+
+    private static class RecordingWriter implements EventLogWriter {
+        private final Map<Long, Integer> written = new TreeMap<>();
+        private final List<Long> renamed = new ArrayList<>();
+
+        @Override
+        public void writeTmpFile(List<Event> events, long timeBucket) {
+            written.merge(timeBucket, events.size(), Integer::sum);
+        }
+
+        @Override
+        public void renameFromTmp(long timeBucket) {
+            renamed.add(timeBucket);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.writer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.MetricsProcessor;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.PerformanceAnalyzerMetrics;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.reader_writer_shared.Event;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.util.TestUtil;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class EventStagingQueueTests {
+    private static final MetricsProcessor PROCESSOR =
+            (startTime, keysPath) -> PerformanceAnalyzerMetrics.generatePath(startTime, keysPath);
+
+    @Before
+    public void init() {
+        TestUtil.readEvents();
+    }
+
+    @After
+    public void cleanup() {
+        EventStagingQueue.INSTANCE.configure(false, EventStagingQueue.DEFAULT_RING_CAPACITY);
+        EventStagingQueue.INSTANCE.clear();
+        TestUtil.readEvents();
+    }
+
+    @Test
+    public void testDisabledEmitsToMetricQueue() {
+        EventStagingQueue.INSTANCE.configure(false, 16);
+        assertTrue(EventStagingQueue.INSTANCE.emit(PROCESSOR, "value", 0, "a", "b"));
+        List<Event> events = TestUtil.readEvents();
+        assertEquals(1, events.size());
+        assertEquals("value", events.get(0).value);
+    }
+
+    @Test
+    public void testStagedEventsAreReplayed() throws InterruptedException {
+        EventStagingQueue.INSTANCE.configure(true, 256);
+        int threads = 8;
+        int eventsPerThread = 200;
+        List<Thread> producers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            String thread = String.valueOf(i);
+            producers.add(
+                    new Thread(
+                            () -> {
+                                for (int j = 0; j < eventsPerThread; j++) {
+                                    EventStagingQueue.INSTANCE.emit(
+                                            PROCESSOR, thread + ":" + j, 0, thread);
+                                }
+                            }));
+        }
+        for (Thread producer : producers) {
+            producer.start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        // Nothing reaches the metric queue until the purger thread drains the rings.
+        assertTrue(TestUtil.readEvents().isEmpty());
+
+        List<Event> events = new ArrayList<>();
+        assertEquals(threads * eventsPerThread, EventStagingQueue.INSTANCE.drainTo(events));
+        Set<String> values = new HashSet<>();
+        for (Event event : events) {
+            values.add(event.value);
+        }
+        assertEquals(threads * eventsPerThread, values.size());
+        assertEquals(0, EventStagingQueue.INSTANCE.drainTo(events));
+    }
+
+    @Test
+    public void testFullRingDropsEvents() throws InterruptedException {
+        EventStagingQueue.INSTANCE.configure(true, 16);
+        AtomicInteger accepted = new AtomicInteger();
+        Runnable producer =
+                () -> {
+                    for (int i = 0; i < 20; i++) {
+                        if (EventStagingQueue.INSTANCE.emit(PROCESSOR, "value", 0, "a")) {
+                            accepted.incrementAndGet();
+                        }
+                    }
+                };
+        Thread thread = new Thread(producer);
+        thread.start();
+        thread.join();
+        assertEquals(16, accepted.get());
+
+        List<Event> events = new ArrayList<>();
+        assertEquals(16, EventStagingQueue.INSTANCE.drainTo(events));
+        assertEquals(16, events.size());
+    }
+
+    @Test
+    public void testRingIsReusedAfterDrain() {
+        EventStagingQueue.INSTANCE.configure(true, 16);
+        List<Event> events = new ArrayList<>();
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 16; i++) {
+                assertTrue(EventStagingQueue.INSTANCE.emit(PROCESSOR, "value", 0, "a"));
+            }
+            assertFalse(EventStagingQueue.INSTANCE.emit(PROCESSOR, "value", 0, "a"));
+            EventStagingQueue.INSTANCE.drainTo(events);
+        }
+        assertEquals(48, events.size());
+    }
+
+    @Test
+    public void testClearDiscardsStagedEvents() {
+        EventStagingQueue.INSTANCE.configure(true, 16);
+        EventStagingQueue.INSTANCE.emit(PROCESSOR, "value", 0, "a");
+        EventStagingQueue.INSTANCE.clear();
+        List<Event> events = new ArrayList<>();
+        assertEquals(0, EventStagingQueue.INSTANCE.drainTo(events));
+        assertTrue(events.isEmpty());
+    }
+}
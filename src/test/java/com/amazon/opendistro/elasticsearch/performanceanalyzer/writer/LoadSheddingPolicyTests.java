@@ -0,0 +1,104 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.writer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.collectors.StatsCollector;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.PerformanceAnalyzerMetrics;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.reader_writer_shared.Event;
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.util.TestUtil;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+
+public class LoadSheddingPolicyTests {
+    private final LoadSheddingPolicy policy = new LoadSheddingPolicy(100, 0.5, 0.8);
+
+    @After
+    public void cleanup() {
+        EventStagingQueue.INSTANCE.setLoadSheddingPolicy(LoadSheddingPolicy.DEFAULT);
+        TestUtil.readEvents();
+    }
+
+    @Test
+    public void testKeepsEverythingBelowLowWaterMark() {
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(policy.admit(EventPriority.SHARD_REQUEST, 0.49));
+            assertTrue(policy.admit(EventPriority.REQUEST, 0.49));
+        }
+    }
+
+    @Test
+    public void testSamplesShardRequestsBetweenWaterMarks() {
+        int admitted = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (policy.admit(EventPriority.SHARD_REQUEST, 0.65)) {
+                admitted++;
+            }
+            assertTrue(policy.admit(EventPriority.REQUEST, 0.65));
+        }
+        // Half way between the marks, about half of the shard requests are kept.
+        assertTrue(admitted > 4000 && admitted < 6000);
+    }
+
+    @Test
+    public void testShedsShardRequestsPastHighWaterMark() {
+        int admitted = 0;
+        for (int i = 0; i < 10000; i++) {
+            assertFalse(policy.admit(EventPriority.SHARD_REQUEST, 0.8));
+            if (policy.admit(EventPriority.REQUEST, 0.9)) {
+                admitted++;
+            }
+            assertFalse(policy.admit(EventPriority.REQUEST, 1));
+        }
+        assertTrue(admitted > 4000 && admitted < 6000);
+    }
+
+    @Test
+    public void testQueueFill() {
+        assertEquals(0.25, policy.queueFill(25), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidWaterMarks() {
+        new LoadSheddingPolicy(100, 0.8, 0.5);
+    }
+
+    @Test
+    public void testAdmitCountsShedEvents() {
+        EventStagingQueue.INSTANCE.setLoadSheddingPolicy(new LoadSheddingPolicy(10, 0.5, 0.8));
+        assertTrue(EventStagingQueue.INSTANCE.admit(EventPriority.SHARD_REQUEST));
+        for (int i = 0; i < 9; i++) {
+            PerformanceAnalyzerMetrics.metricQueue.offer(new Event("key", "value", 0));
+        }
+        AtomicInteger before =
+                StatsCollector.instance()
+                        .getCounters()
+                        .get(EventPriority.SHARD_REQUEST.shedMetric());
+        int shed = before == null ? 0 : before.get();
+        assertFalse(EventStagingQueue.INSTANCE.admit(EventPriority.SHARD_REQUEST));
+        assertEquals(
+                shed + 1,
+                StatsCollector.instance()
+                        .getCounters()
+                        .get(EventPriority.SHARD_REQUEST.shedMetric())
+                        .get());
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.writer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.reader_writer_shared.Event;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Function;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PartitionedEventLogWriterTests {
+    private static final long TIME_BUCKET = 1566413970000L;
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private String metricsLocation;
+    private Path file;
+    private PartitionedEventLogWriter writer;
+
+    @Before
+    public void init() throws IOException {
+        metricsLocation = folder.newFolder("metrics").getAbsolutePath() + "/";
+        file = Paths.get(metricsLocation, String.valueOf(TIME_BUCKET));
+    }
+
+    @After
+    public void cleanup() {
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    @Test
+    public void testPartitionHash() {
+        assertEquals(
+                fold("threads/15970".hashCode()),
+                PartitionedEventLogWriter.hash("threads/15970/os_metrics"));
+        assertEquals(
+                PartitionedEventLogWriter.hash("threads/15970/os_metrics"),
+                PartitionedEventLogWriter.hash("threads/15970/shardbulk/806670/start"));
+        assertEquals(
+                fold("indices/nyc_taxis".hashCode()),
+                PartitionedEventLogWriter.hash("indices/nyc_taxis/27"));
+        assertEquals(fold("tcp_metrics".hashCode()), PartitionedEventLogWriter.hash("tcp_metrics"));
+        assertEquals(fold("threads/".hashCode()), PartitionedEventLogWriter.hash("threads/"));
+        assertEquals(0, PartitionedEventLogWriter.hash(""));
+    }
+
+    @Test
+    public void testThreadsSpreadOverThePartitions() {
+        writer = new PartitionedEventLogWriter(metricsLocation, 4, TextEventLogWriter::new);
+        Set<Integer> partitions = new HashSet<>();
+        for (int tid = 15970; tid < 16070; tid++) {
+            partitions.add(writer.partition("threads/" + tid + "/os_metrics"));
+        }
+        assertEquals(4, partitions.size());
+    }
+
+    @Test
+    public void testPartitionsAreMergedOnRename() throws IOException {
+        List<Event> events = sampleEvents();
+        writer = new PartitionedEventLogWriter(metricsLocation, 4, TextEventLogWriter::new);
+        writer.writeTmpFile(events.subList(0, 4), TIME_BUCKET);
+        writer.writeTmpFile(events.subList(4, events.size()), TIME_BUCKET);
+        // The partitions are written next to the metrics location, the reader sees nothing yet.
+        assertEquals(0, Files.list(Paths.get(metricsLocation)).count());
+
+        writer.renameFromTmp(TIME_BUCKET);
+        writer.awaitMerges();
+        assertEquals(1, Files.list(Paths.get(metricsLocation)).count());
+        assertSameEvents(events, file);
+        Path partitions = PartitionedEventLogWriter.partitionsRoot(metricsLocation);
+        for (int i = 0; i < 4; i++) {
+            assertEquals(0, Files.list(partitions.resolve(String.valueOf(i))).count());
+        }
+    }
+
+    @Test
+    public void testPartitionsAreWrittenOnTheirOwnThreads() throws IOException {
+        List<String> threads = new ArrayList<>();
+        Function<String, EventLogWriter> recording =
+                location ->
+                        new TextEventLogWriter(location) {
+                            @Override
+                            public void writeTmpFile(List<Event> events, long timeBucket) {
+                                synchronized (threads) {
+                                    threads.add(Thread.currentThread().getName());
+                                }
+                                super.writeTmpFile(events, timeBucket);
+                            }
+                        };
+        writer = new PartitionedEventLogWriter(metricsLocation, 2, recording);
+        List<Event> events = sampleEvents();
+        writer.writeTmpFile(events, TIME_BUCKET);
+        writer.renameFromTmp(TIME_BUCKET);
+        writer.awaitMerges();
+
+        assertEquals(
+                2, events.stream().map(event -> writer.partition(event.key)).distinct().count());
+        assertEquals(2, threads.size());
+        assertNotEquals(threads.get(0), threads.get(1));
+        assertFalse(threads.contains(Thread.currentThread().getName()));
+    }
+
+    @Test(timeout = 10_000)
+    public void testWriteDoesNotWaitForThePartitions() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        Function<String, EventLogWriter> blocking =
+                location ->
+                        new TextEventLogWriter(location) {
+                            @Override
+                            public void writeTmpFile(List<Event> events, long timeBucket) {
+                                try {
+                                    writing.await();
+                                } catch (InterruptedException e) {
+                                    Thread.currentThread().interrupt();
+                                }
+                                super.writeTmpFile(events, timeBucket);
+                            }
+                        };
+        List<Event> events = new ArrayList<>(sampleEvents());
+        writer = new PartitionedEventLogWriter(metricsLocation, 2, blocking);
+        writer.writeTmpFile(events, TIME_BUCKET);
+        // The partitions have their own copy, the caller is free to reuse its list.
+        events.clear();
+        writer.renameFromTmp(TIME_BUCKET);
+        assertFalse(Files.exists(file));
+
+        writing.countDown();
+        writer.awaitMerges();
+        assertSameEvents(sampleEvents(), file);
+    }
+
+    @Test
+    public void testRenameDoesNotWaitForTheMerge() throws Exception {
+        CountDownLatch sealing = new CountDownLatch(1);
+        Function<String, EventLogWriter> blocking =
+                location ->
+                        new TextEventLogWriter(location) {
+                            @Override
+                            public void renameFromTmp(long timeBucket) {
+                                try {
+                                    sealing.await();
+                                } catch (InterruptedException e) {
+                                    Thread.currentThread().interrupt();
+                                }
+                                super.renameFromTmp(timeBucket);
+                            }
+                        };
+        List<Event> events = sampleEvents();
+        writer = new PartitionedEventLogWriter(metricsLocation, 2, blocking);
+        writer.writeTmpFile(events, TIME_BUCKET);
+        writer.renameFromTmp(TIME_BUCKET);
+        assertFalse(Files.exists(file));
+
+        sealing.countDown();
+        writer.awaitMerges();
+        assertSameEvents(events, file);
+    }
+
+    @Test
+    public void testEmptyBucketIsNotCreated() {
+        writer = new PartitionedEventLogWriter(metricsLocation, 2, TextEventLogWriter::new);
+        writer.renameFromTmp(TIME_BUCKET);
+        writer.awaitMerges();
+        assertFalse(Files.exists(file));
+    }
+
+    private static List<Event> sampleEvents() {
+        return Arrays.asList(
+                new Event(
+                        "threads/15970/os_metrics",
+                        "current_time:1566413997129\nCPU_Utilization:0.0\nPaging_MajfltRate:0.0",
+                        TIME_BUCKET),
+                new Event(
+                        "indices/nyc_taxis/27",
+                        "{\"current_time\":1566413996768}\n"
+                                + "{\"Indexing_ThrottleTime\":0,\"Cache_Query_Hit\":-3}",
+                        TIME_BUCKET),
+                new Event(
+                        "threads/29011/shardbulk/806670/start",
+                        "current_time:1566413995001\nStartTime:1566413995001\nItemCount:20\n"
+                                + "IndexName:nyc_taxis\nShardID:3\nPrimary:true",
+                        TIME_BUCKET),
+                new Event(
+                        "tcp_metrics",
+                        "{\"current_time\":1566413746687}\n"
+                                + "{\"DestAddr\":\"00000000FFFF0000\",\"Net_TCP_NumFlows\":17}",
+                        TIME_BUCKET),
+                new Event(
+                        "threads/http/bulk/43369/finish",
+                        "current_time:1566413995020\nFinishTime:\nException:{\"a\":{\"b\":1}}\n",
+                        TIME_BUCKET),
+                new Event("master_task/-1/0042//start", "", TIME_BUCKET),
+                new Event("thread_pool", "\u00e9t\u00e9:\u00fc\n\n", TIME_BUCKET));
+    }
+
+    private static int fold(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * The partitions reorder the events across threads and indices, but not within one, so the
+     * merged file holds each event once, as the text writer wrote it.
+     */
+    private static void assertSameEvents(List<Event> expected, Path file) throws IOException {
+        String content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        int length = 0;
+        for (Event event : expected) {
+            String text = "^" + event.key + "\n" + event.value + "$\n";
+            assertTrue(content.contains(text));
+            length += text.length();
+        }
+        assertEquals(length, content.length());
+    }
+}
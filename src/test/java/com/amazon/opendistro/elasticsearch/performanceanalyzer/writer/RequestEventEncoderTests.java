@@ -0,0 +1,86 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.writer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import com.amazon.opendistro.elasticsearch.performanceanalyzer.metrics.PerformanceAnalyzerMetrics;
+import org.junit.Test;
+
+public class RequestEventEncoderTests {
+    private static final String TIME_KEY = RequestEventEncoder.key("time");
+    private static final String NAME_KEY = RequestEventEncoder.key("name");
+
+    @Test
+    public void testKey() {
+        assertEquals(
+                PerformanceAnalyzerMetrics.sMetricNewLineDelimitor
+                        + "time"
+                        + PerformanceAnalyzerMetrics.sKeyValueDelimitor,
+                TIME_KEY);
+    }
+
+    @Test
+    public void testEncode() {
+        String value =
+                RequestEventEncoder.start()
+                        .append(TIME_KEY, 10L)
+                        .append(NAME_KEY, "index")
+                        .append(NAME_KEY, true)
+                        .encode(1);
+        assertEquals(
+                PerformanceAnalyzerMetrics.getCurrentTimeMetric()
+                        + TIME_KEY
+                        + "10"
+                        + NAME_KEY
+                        + "index"
+                        + NAME_KEY
+                        + "true",
+                value);
+    }
+
+    @Test
+    public void testEncodeWithWeight() {
+        assertEquals(
+                PerformanceAnalyzerMetrics.getCurrentTimeMetric()
+                        + TIME_KEY
+                        + "10"
+                        + RequestEventEncoder.key(RequestEventSampler.SAMPLING_WEIGHT)
+                        + "4.0",
+                RequestEventEncoder.start().append(TIME_KEY, 10L).encode(4));
+    }
+
+    @Test
+    public void testEncoderIsReused() {
+        RequestEventEncoder encoder = RequestEventEncoder.start();
+        encoder.append(NAME_KEY, "first").encode(1);
+        assertSame(encoder, RequestEventEncoder.start());
+        assertEquals(
+                PerformanceAnalyzerMetrics.getCurrentTimeMetric() + NAME_KEY + "second",
+                RequestEventEncoder.start().append(NAME_KEY, "second").encode(1));
+
+        StringBuilder longValue = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            longValue.append('a');
+        }
+        RequestEventEncoder.start().append(NAME_KEY, longValue.toString()).encode(1);
+        assertEquals(
+                PerformanceAnalyzerMetrics.getCurrentTimeMetric() + NAME_KEY + "short",
+                RequestEventEncoder.start().append(NAME_KEY, "short").encode(1));
+    }
+}
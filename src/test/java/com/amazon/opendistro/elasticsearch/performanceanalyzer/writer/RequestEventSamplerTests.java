@@ -0,0 +1,90 @@
+/*
+ * Copyright 2021 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+
+package com.amazon.opendistro.elasticsearch.performanceanalyzer.writer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class RequestEventSamplerTests {
+    private final RequestEventSampler sampler = new RequestEventSampler();
+
+    @Test
+    public void testSamplesEveryRequestByDefault() {
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(1, sampler.sample(i), 0);
+        }
+    }
+
+    @Test
+    public void testFixedRate() {
+        sampler.setSamplingRate(0.25);
+        int sampled = 0;
+        for (int i = 0; i < 10000; i++) {
+            double weight = sampler.sample(i);
+            if (weight > 0) {
+                assertEquals(4, weight, 0);
+                sampled++;
+            }
+        }
+        assertTrue(sampled > 2000 && sampled < 3000);
+    }
+
+    @Test
+    public void testAdaptiveRate() {
+        sampler.setEventsPerSecondBudget(2000);
+        // 10000 requests, 20000 events, in the first second.
+        long start = RequestEventSampler.ADAPT_INTERVAL_MILLIS;
+        for (int i = 0; i < 10000; i++) {
+            assertEquals(1, sampler.sample(start), 0);
+        }
+        int sampled = 0;
+        long next = start + RequestEventSampler.ADAPT_INTERVAL_MILLIS;
+        for (int i = 0; i < 10000; i++) {
+            double weight = sampler.sample(next);
+            if (weight > 0) {
+                assertEquals(10, weight, 0.001);
+                sampled++;
+            }
+        }
+        assertTrue(sampled > 800 && sampled < 1200);
+
+        sampler.setEventsPerSecondBudget(0);
+        assertEquals(1, sampler.sample(next), 0);
+    }
+
+    @Test
+    public void testAdaptiveRateIsBoundedByFixedRate() {
+        sampler.setSamplingRate(0.5);
+        sampler.setEventsPerSecondBudget(1000000);
+        for (int i = 0; i < 100; i++) {
+            double weight = sampler.sample(i * RequestEventSampler.ADAPT_INTERVAL_MILLIS);
+            assertTrue(weight == 0 || weight == 2);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRate() {
+        sampler.setSamplingRate(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidBudget() {
+        sampler.setEventsPerSecondBudget(-1);
+    }
+}